@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import net.runelite.client.events.ConfigChanged;
+
+/**
+ * Batches config changes so that a burst of them, e.g. from loading a preset,
+ * patches the current configurations and rebuilds the plugin UI once.
+ * Current configurations are only patched and updated on the event dispatch thread, so a rebuilt snapshot and
+ * the match states built from it are never mixed with patches from another thread.
+ */
+public class ConfigChangeCoalescer
+{
+	/**
+	 * Time changes are collected before they are applied, about one frame.
+	 */
+	private static final int COALESCE_MILLIS = 16;
+
+	private final PluginPresetsPlugin plugin;
+	private final CurrentConfigurations currentConfigurations;
+	private final PresetMatchEngine presetMatchEngine;
+
+	/**
+	 * Latest changes by config group and key, guarded by this.
+	 */
+	private final Map<String, ConfigChanged> pendingChanges = new LinkedHashMap<>();
+	private boolean rebuildRequested = false;
+	private boolean updateRequested = false;
+	private boolean scheduled = false;
+
+	private final Timer timer;
+
+	@Inject
+	public ConfigChangeCoalescer(PluginPresetsPlugin plugin, CurrentConfigurations currentConfigurations, PresetMatchEngine presetMatchEngine)
+	{
+		this.plugin = plugin;
+		this.currentConfigurations = currentConfigurations;
+		this.presetMatchEngine = presetMatchEngine;
+		this.timer = new Timer(COALESCE_MILLIS, e -> flush());
+		this.timer.setRepeats(false);
+	}
+
+	/**
+	 * Queues a config change to be patched into the current configurations.
+	 */
+	public synchronized void configChanged(ConfigChanged configChanged)
+	{
+		pendingChanges.put(configChanged.getGroup() + "." + configChanged.getKey(), configChanged);
+		schedule();
+	}
+
+	/**
+	 * Queues a plugin UI rebuild, that is done together with pending config changes.
+	 */
+	public synchronized void requestRebuild()
+	{
+		rebuildRequested = true;
+		schedule();
+	}
+
+	/**
+	 * Queues current configurations to be read again from the client, e.g. when plugins were installed or removed.
+	 * Pending config changes are then read with the rest of the configs instead of being patched.
+	 */
+	public synchronized void requestUpdate()
+	{
+		updateRequested = true;
+		rebuildRequested = true;
+		schedule();
+	}
+
+	public synchronized void stop()
+	{
+		pendingChanges.clear();
+		rebuildRequested = false;
+		updateRequested = false;
+		scheduled = false;
+		SwingUtilities.invokeLater(timer::stop);
+	}
+
+	private void schedule()
+	{
+		if (!scheduled)
+		{
+			scheduled = true;
+			SwingUtilities.invokeLater(timer::restart);
+		}
+	}
+
+	/**
+	 * Applies pending changes on the event dispatch thread.
+	 */
+	private void flush()
+	{
+		final List<ConfigChanged> changes;
+		final boolean update;
+		boolean rebuild;
+		synchronized (this)
+		{
+			changes = new ArrayList<>(pendingChanges.values());
+			pendingChanges.clear();
+			update = updateRequested;
+			updateRequested = false;
+			rebuild = rebuildRequested;
+			rebuildRequested = false;
+			scheduled = false;
+		}
+
+		if (update)
+		{
+			// Rebuilds the snapshot and match states together
+			plugin.updateCurrentConfigurations();
+			changes.clear();
+		}
+
+		for (ConfigChanged change : changes)
+		{
+			if (currentConfigurations.patch(change.getGroup(), change.getKey(), change.getNewValue()))
+			{
+				presetMatchEngine.configChanged(change.getGroup(), change.getKey());
+				rebuild = true;
+			}
+		}
+
+		if (!rebuild)
+		{
+			return;
+		}
+
+		if (plugin.isLoadingPreset())
+		{
+			// The preset load requests a rebuild once it finishes
+			return;
+		}
+
+		plugin.rebuildPluginUi();
+	}
+}
@@ -25,18 +25,56 @@
 package com.pluginpresets;
 
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.Getter;
-import lombok.Setter;
+import net.runelite.client.config.RuneLiteConfig;
 
 /**
- * Helper class that retrieves the user's current set of configs periodically
+ * Snapshot of the user's current set of configs. It is rebuilt from the RuneLite client when plugins change,
+ * and single config changes are patched into it in place.
+ * Callers that modify the configs must use {@link #copyPluginConfigs()}.
+ * Only updated and patched on the event dispatch thread, config changes and plugin changes are applied through
+ * {@link ConfigChangeCoalescer}.
  */
+@Singleton
 public class CurrentConfigurations
 {
+	/**
+	 * Replaced as a whole when the snapshot is rebuilt, legacy presets loaded on the preset storage thread read it.
+	 */
 	@Getter
-	@Setter
-	private List<PluginConfig> pluginConfigs;
+	private volatile List<PluginConfig> pluginConfigs = new ArrayList<>();
+
+	/**
+	 * Settings in the snapshot by config group and key. The same setting can be in multiple configs as a custom setting.
+	 */
+	private Map<String, Map<String, List<PluginSetting>>> settings = new HashMap<>();
+
+	private Map<String, PluginConfig> configsByName = new HashMap<>();
+
+	/**
+	 * Names of the configs that contain a setting, by config group and key.
+	 */
+	private Map<String, Set<String>> configNamesBySetting = new HashMap<>();
+
+	/**
+	 * Incremented when the snapshot is rebuilt, which can change every config.
+	 */
+	@Getter
+	private long generation;
+
+	/**
+	 * Incremented per config name when a patch changes one of its values, reset when the snapshot is rebuilt.
+	 */
+	private final Map<String, Long> configVersions = new HashMap<>();
 
 	private final PluginPresetsCurrentConfigManager currentConfigManager;
 
@@ -46,8 +84,105 @@ public class CurrentConfigurations
 		this.currentConfigManager = currentConfigManager;
 	}
 
+	/**
+	 * Rebuilds the snapshot by reading every config from the RuneLite client.
+	 */
 	public void update()
 	{
-		setPluginConfigs(currentConfigManager.getCurrentConfigs());
+		final List<PluginConfig> currentConfigs = currentConfigManager.getCurrentConfigs();
+		final Map<String, Map<String, List<PluginSetting>>> currentSettings = new HashMap<>();
+		final Map<String, PluginConfig> currentConfigsByName = new HashMap<>();
+		final Map<String, Set<String>> currentConfigNamesBySetting = new HashMap<>();
+
+		for (PluginConfig config : currentConfigs)
+		{
+			currentConfigsByName.putIfAbsent(config.getName(), config);
+			for (PluginSetting setting : config.getSettings())
+			{
+				final String group = setting.getCustomConfigName() != null ? setting.getCustomConfigName() : config.getConfigName();
+				currentSettings.computeIfAbsent(group, g -> new HashMap<>())
+					.computeIfAbsent(setting.getKey(), k -> new ArrayList<>())
+					.add(setting);
+				currentConfigNamesBySetting.computeIfAbsent(group + "." + setting.getKey(), k -> new HashSet<>())
+					.add(config.getName());
+			}
+		}
+
+		settings = currentSettings;
+		configsByName = currentConfigsByName;
+		configNamesBySetting = currentConfigNamesBySetting;
+		pluginConfigs = currentConfigs;
+		configVersions.clear();
+		generation++;
+	}
+
+	/**
+	 * Version of a config within the current generation, changes when a patch changes one of the config's values.
+	 */
+	public long getConfigVersion(final String name)
+	{
+		return configVersions.getOrDefault(name, 0L);
+	}
+
+	/**
+	 * Finds the current config of a plugin by its name.
+	 */
+	public PluginConfig getConfig(final String name)
+	{
+		return configsByName.get(name);
+	}
+
+	/**
+	 * Finds a current setting by the config group and key its value is stored in. Custom settings are found by their
+	 * custom config name.
+	 */
+	public PluginSetting getSetting(final String group, final String key)
+	{
+		final Map<String, List<PluginSetting>> groupSettings = settings.get(group);
+		final List<PluginSetting> keySettings = groupSettings != null ? groupSettings.get(key) : null;
+		return keySettings != null ? keySettings.get(0) : null;
+	}
+
+	/**
+	 * Updates a changed config value in the snapshot.
+	 *
+	 * @return true if the snapshot contains the changed value
+	 */
+	public boolean patch(final String group, final String key, final String value)
+	{
+		boolean patched = false;
+
+		final Map<String, List<PluginSetting>> groupSettings = settings.get(group);
+		final List<PluginSetting> keySettings = groupSettings != null ? groupSettings.get(key) : null;
+		if (keySettings != null)
+		{
+			keySettings.forEach(setting -> setting.setValue(value));
+			configNamesBySetting.getOrDefault(group + "." + key, Collections.emptySet())
+				.forEach(name -> configVersions.merge(name, 1L, Long::sum));
+			patched = true;
+		}
+
+		if (RuneLiteConfig.GROUP_NAME.equals(group))
+		{
+			// Plugin on/off status is stored in RuneLite config group
+			final String pluginName = currentConfigManager.getPluginName(key);
+			final PluginConfig config = pluginName != null ? configsByName.get(pluginName) : null;
+			if (config != null)
+			{
+				config.setEnabled(currentConfigManager.isPluginEnabled(key));
+				configVersions.merge(pluginName, 1L, Long::sum);
+				patched = true;
+			}
+		}
+
+		return patched;
+	}
+
+	/**
+	 * Copies the snapshot for callers that modify the configs, e.g. to add them to a preset.
+	 */
+	public List<PluginConfig> copyPluginConfigs()
+	{
+		return pluginConfigs.stream().map(PluginConfig::copy).collect(Collectors.toList());
 	}
 }
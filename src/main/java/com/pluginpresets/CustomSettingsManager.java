@@ -25,22 +25,36 @@
 package com.pluginpresets;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
- * Container storing all custom settings from all plugins across all presets
+ * Container storing all custom settings from all plugins across all presets,
+ * indexed by preset id, plugin config name and custom config key.
  */
 @Singleton
 public class CustomSettingsManager
 {
 	private final List<CustomSetting> settings;
+	private final Map<Long, List<CustomSetting>> settingsByPresetId;
+	private final Map<String, List<CustomSetting>> settingsByConfigName;
+	private final Map<String, List<CustomSetting>> settingsByCustomConfigKey;
 
 	@Inject
 	public CustomSettingsManager()
 	{
 		this.settings = new ArrayList<>();
+		this.settingsByPresetId = new HashMap<>();
+		this.settingsByConfigName = new HashMap<>();
+		this.settingsByCustomConfigKey = new HashMap<>();
 	}
 
 	/**
@@ -50,17 +64,7 @@ public class CustomSettingsManager
 	 */
 	public List<CustomSetting> getCustomSettingsFor(long id)
 	{
-		ArrayList<CustomSetting> customSettingsList = new ArrayList<>();
-
-		settings.forEach(s ->
-		{
-			if (s.parentPreset.getId() == id)
-			{
-				customSettingsList.add(s);
-			}
-		});
-
-		return customSettingsList;
+		return settingsByPresetId.getOrDefault(id, Collections.emptyList());
 	}
 
 	/**
@@ -70,36 +74,99 @@ public class CustomSettingsManager
 	 */
 	public List<CustomSetting> getCustomConfigsFor(String configName)
 	{
-		ArrayList<CustomSetting> customSettingsList = new ArrayList<>();
+		return settingsByConfigName.getOrDefault(configName, Collections.emptyList());
+	}
 
-		settings.forEach(s ->
-		{
-			if (s.parentConfig.getConfigName().equals(configName))
-			{
-				customSettingsList.add(s);
-			}
-		});
+	/**
+	 * Finds custom settings for all presets that store the given config key.
+	 * @param customConfigName the config name of the custom setting
+	 * @param key the setting key
+	 * @return all matching custom settings
+	 */
+	public List<CustomSetting> getCustomSettingsFor(String customConfigName, String key)
+	{
+		return settingsByCustomConfigKey.getOrDefault(customConfigName + "." + key, Collections.emptyList());
+	}
 
-		return customSettingsList;
+	/**
+	 * Finds presets that change the given config key with a custom setting.
+	 * @param customConfigName the config name of the custom setting
+	 * @param key the setting key
+	 * @return matching presets in preset order
+	 */
+	public Set<PluginPreset> getPresetsWithCustomSetting(String customConfigName, String key)
+	{
+		return getCustomSettingsFor(customConfigName, key).stream()
+			.map(s -> s.parentPreset)
+			.collect(Collectors.toCollection(LinkedHashSet::new));
 	}
 
 	/**
 	 * Finds and stores custom settings given all plugin presets
 	 * @param pluginPresets all the user's presets
+	 * @return custom settings that were added or removed, empty if the set of custom settings did not change
 	 */
-	public void parseCustomSettings(List<PluginPreset> pluginPresets)
+	public List<CustomSetting> parseCustomSettings(List<PluginPreset> pluginPresets)
 	{
+		final Map<String, CustomSetting> previousSettings = getCustomSettingsByKey();
 		settings.clear();
+		settingsByPresetId.clear();
+		settingsByConfigName.clear();
+		settingsByCustomConfigKey.clear();
+
+		for (PluginPreset preset : pluginPresets)
+		{
+			// Don't load plugin configs of presets that are known to have no custom settings
+			if (!preset.containsCustomSettings())
+			{
+				continue;
+			}
 
-		pluginPresets.forEach(preset ->
-			preset.getPluginConfigs().forEach(configuration ->
+			preset.readPluginConfigs().forEach(configuration ->
 				configuration.getSettings().forEach(setting ->
 				{
 					if (setting.getCustomConfigName() != null)
 					{
 						CustomSetting customSetting = new CustomSetting(setting, configuration, preset);
-						settings.add(customSetting);
+						addCustomSetting(customSetting);
 					}
-				})));
+				}));
+		}
+
+		final Map<String, CustomSetting> currentSettings = getCustomSettingsByKey();
+		final List<CustomSetting> changedSettings = new ArrayList<>();
+		previousSettings.forEach((key, setting) ->
+		{
+			if (!currentSettings.containsKey(key))
+			{
+				changedSettings.add(setting);
+			}
+		});
+		currentSettings.forEach((key, setting) ->
+		{
+			if (!previousSettings.containsKey(key))
+			{
+				changedSettings.add(setting);
+			}
+		});
+		return changedSettings;
+	}
+
+	private void addCustomSetting(CustomSetting customSetting)
+	{
+		settings.add(customSetting);
+		settingsByPresetId.computeIfAbsent(customSetting.parentPreset.getId(), id -> new ArrayList<>()).add(customSetting);
+		settingsByConfigName.computeIfAbsent(customSetting.parentConfig.getConfigName(), c -> new ArrayList<>()).add(customSetting);
+		settingsByCustomConfigKey.computeIfAbsent(customSetting.setting.getCustomConfigName() + "." + customSetting.setting.getKey(), k -> new ArrayList<>()).add(customSetting);
+	}
+
+	/**
+	 * Custom settings by the config key and plugin config they are added to the current configs with.
+	 */
+	private Map<String, CustomSetting> getCustomSettingsByKey()
+	{
+		return settings.stream()
+			.collect(Collectors.toMap(s -> s.setting.getCustomConfigName() + "." + s.setting.getKey() + "." + s.parentConfig.getConfigName(),
+				Function.identity(), (first, second) -> first));
 	}
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * List that finds its first element with a given key without going through the list. The index is built on first
+ * lookup and kept up to date by every change made through the list. Keys of elements must not change while they
+ * are in the list.
+ */
+class KeyedList<K, E> extends AbstractList<E> implements RandomAccess
+{
+	private final List<E> elements;
+	private final Function<E, K> keyFunction;
+
+	/**
+	 * First element by key, null until the next lookup rebuilds it.
+	 */
+	private Map<K, E> elementsByKey;
+
+	KeyedList(final Collection<? extends E> elements, final Function<E, K> keyFunction)
+	{
+		this.elements = new ArrayList<>(elements);
+		this.keyFunction = keyFunction;
+	}
+
+	/**
+	 * Returns the list itself if it already is a keyed list, otherwise a keyed copy of it.
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, E> KeyedList<K, E> of(final List<E> elements, final Function<E, K> keyFunction)
+	{
+		if (elements instanceof KeyedList)
+		{
+			return (KeyedList<K, E>) elements;
+		}
+		return new KeyedList<>(elements, keyFunction);
+	}
+
+	/**
+	 * Finds the first element with the given key.
+	 */
+	E getByKey(final K key)
+	{
+		if (elementsByKey == null)
+		{
+			final Map<K, E> index = new HashMap<>(elements.size() * 2);
+			for (E element : elements)
+			{
+				index.putIfAbsent(keyFunction.apply(element), element);
+			}
+			elementsByKey = index;
+		}
+		return elementsByKey.get(key);
+	}
+
+	@Override
+	public E get(final int index)
+	{
+		return elements.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return elements.size();
+	}
+
+	@Override
+	public E set(final int index, final E element)
+	{
+		final E previous = elements.set(index, element);
+		elementsByKey = null;
+		return previous;
+	}
+
+	@Override
+	public void add(final int index, final E element)
+	{
+		elements.add(index, element);
+		modCount++;
+
+		if (elementsByKey != null)
+		{
+			if (index == elements.size() - 1)
+			{
+				// An appended element is found only if no earlier element has its key
+				elementsByKey.putIfAbsent(keyFunction.apply(element), element);
+			}
+			else
+			{
+				elementsByKey = null;
+			}
+		}
+	}
+
+	@Override
+	public E remove(final int index)
+	{
+		final E removed = elements.remove(index);
+		modCount++;
+
+		if (elementsByKey != null && elementsByKey.get(keyFunction.apply(removed)) == removed)
+		{
+			// A later element with the same key takes its place
+			elementsByKey = null;
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear()
+	{
+		elements.clear();
+		modCount++;
+		elementsByKey = null;
+	}
+}
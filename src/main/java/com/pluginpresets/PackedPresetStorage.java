@@ -0,0 +1,918 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.Keybind;
+
+/**
+ * Preset store that keeps all local presets in a single packed file, which is cheaper to read and write than
+ * a file per preset. Saves append records of changed and removed presets to the end of the file with a single
+ * write and fsync, the latest record of a preset wins. The file is read with positional reads, it is never mapped
+ * to memory so that it can be truncated and replaced while presets are loaded, and it is compacted once most of
+ * it is taken by outdated records.
+ * <p>
+ * File format: a magic number followed by records of
+ * [payload length: int][type: byte][preset id: long][payload: preset json in UTF-8][checksum: int].
+ * A record with a missing or mismatching checksum was never fully written, it and anything after it is ignored.
+ */
+@Slf4j
+@Singleton
+public class PackedPresetStorage implements PresetStore
+{
+	static final String PACK_FILE_NAME = ".presets.pack";
+
+	private static final int MAGIC = 0x50505031;
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+	private static final int RECORD_HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES;
+	private static final int RECORD_OVERHEAD = RECORD_HEADER_SIZE + Integer.BYTES;
+	private static final long COMPACTION_MIN_SIZE = 64 * 1024;
+
+	private final PluginPresetsStorage presetStorage;
+	private final PresetFolderLock folderLock;
+
+	/**
+	 * Records of presets by preset id, as last written or read by this client, including records of saves that are
+	 * not written yet. Changed while holding the store monitor, which is taken after the folder lock.
+	 */
+	private final Map<Long, PackedRecord> records = new ConcurrentHashMap<>();
+
+	/**
+	 * Saves that were prepared but are not written yet, presets in them are overwritten by this client.
+	 * Only accessed while holding the store monitor.
+	 */
+	private final List<PackedSave> unwrittenSaves = new ArrayList<>();
+
+	/**
+	 * State of the pack file after it was last written or read by this client.
+	 */
+	private volatile long packSize = -1;
+	private volatile long packLastModified = -1;
+
+	private final File packFile;
+	private final File compactionFile;
+
+	@Inject
+	public PackedPresetStorage(PluginPresetsStorage presetStorage, PresetFolderLock folderLock)
+	{
+		this(presetStorage, folderLock, PluginPresetsPlugin.PRESETS_DIR);
+	}
+
+	PackedPresetStorage(PluginPresetsStorage presetStorage, PresetFolderLock folderLock, File folder)
+	{
+		this.presetStorage = presetStorage;
+		this.folderLock = folderLock;
+		this.packFile = new File(folder, PACK_FILE_NAME);
+		this.compactionFile = new File(folder, PACK_FILE_NAME + ".tmp");
+	}
+
+	@Override
+	public void recoverInterruptedSave()
+	{
+		folderLock.lock();
+		try
+		{
+			if (compactionFile.exists() && !compactionFile.delete())
+			{
+				log.warn(String.format("Could not delete %s", compactionFile.getName()));
+			}
+
+			final Pack pack = readPack();
+			if (packFile.exists() && packFile.length() > pack.end)
+			{
+				log.info(String.format("Removing %d bytes of an interrupted save from %s", packFile.length() - pack.end, PACK_FILE_NAME));
+				try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.WRITE))
+				{
+					channel.truncate(pack.end);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not recover preset pack file", e);
+		}
+		finally
+		{
+			folderLock.unlock();
+		}
+	}
+
+	@Override
+	public List<PluginPreset> loadPresets()
+	{
+		folderLock.lock();
+		try
+		{
+			synchronized (this)
+			{
+				records.clear();
+
+				final List<PluginPreset> pluginPresets = new ArrayList<>();
+				final Pack pack;
+				try
+				{
+					pack = readPack();
+				}
+				catch (IOException e)
+				{
+					log.warn("Could not load presets from preset pack file", e);
+					return pluginPresets;
+				}
+
+				for (PackedRecord record : pack.records.values())
+				{
+					final PluginPreset pluginPreset = toPluginPreset(pack, record);
+					if (pluginPreset != null)
+					{
+						records.put(record.id, record);
+						pluginPresets.add(pluginPreset);
+					}
+				}
+				rememberPackState();
+
+				return pluginPresets;
+			}
+		}
+		finally
+		{
+			folderLock.unlock();
+		}
+	}
+
+	@Override
+	public synchronized PresetSave prepareSave(final List<PluginPreset> pluginPresets)
+	{
+		final PackedSave save = new PackedSave(new PresetChanges(pluginPresets, records::get, presetStorage::toJson));
+
+		// Remove presets that were deleted or moved to config
+		for (Long id : new ArrayList<>(records.keySet()))
+		{
+			if (!save.presetChanges.isLocal(id))
+			{
+				save.deletedIds.add(id);
+				records.remove(id);
+			}
+		}
+
+		save.presetChanges.getChangedPresets().forEach((pluginPreset, json) ->
+		{
+			final PackedRecord record = records.get(pluginPreset.getId());
+			final byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+			final PackedRecord writtenRecord = PackedRecord.of(pluginPreset, payload, save.presetChanges.getHash(pluginPreset));
+			save.writtenRecords.add(writtenRecord);
+			save.payloads.add(payload);
+			save.previousHashes.put(pluginPreset.getId(), record != null ? record.hash : null);
+			records.put(pluginPreset.getId(), writtenRecord);
+		});
+
+		if (!save.isEmpty())
+		{
+			unwrittenSaves.add(save);
+		}
+		return save;
+	}
+
+	@Override
+	public PresetFolderUpdate reloadPresetFiles(final Collection<String> fileNames)
+	{
+		final PresetFolderUpdate update = new PresetFolderUpdate();
+		if (!fileNames.contains(PACK_FILE_NAME))
+		{
+			return update;
+		}
+
+		folderLock.lock();
+		try
+		{
+			synchronized (this)
+			{
+				final Pack pack;
+				try
+				{
+					pack = readPack();
+				}
+				catch (IOException e)
+				{
+					log.warn("Could not reload presets from preset pack file", e);
+					return update;
+				}
+
+				for (Long id : new ArrayList<>(records.keySet()))
+				{
+					if (!pack.records.containsKey(id) && !isUnwritten(id))
+					{
+						records.remove(id);
+						update.getRemovedPresetIds().add(id);
+					}
+				}
+
+				for (PackedRecord record : pack.records.values())
+				{
+					if (isUnwritten(record.id))
+					{
+						// Last writer wins, the preset is overwritten once the save of this client is written
+						continue;
+					}
+
+					final PackedRecord previousRecord = records.get(record.id);
+					if (previousRecord != null && record.hash.equals(previousRecord.hash))
+					{
+						// Keep the position of the record this client knows, it is the same preset
+						previousRecord.position = record.position;
+						continue;
+					}
+
+					final PluginPreset pluginPreset = toPluginPreset(pack, record);
+					if (pluginPreset != null)
+					{
+						records.put(record.id, record);
+						update.getUpdatedPresets().add(pluginPreset);
+					}
+				}
+				rememberPackState();
+
+				return update;
+			}
+		}
+		finally
+		{
+			folderLock.unlock();
+		}
+	}
+
+	private boolean isUnwritten(final long id)
+	{
+		return unwrittenSaves.stream().anyMatch(save -> save.deletedIds.contains(id)
+			|| save.writtenRecords.stream().anyMatch(record -> record.id == id));
+	}
+
+	@Override
+	public boolean isStoreFile(final String fileName)
+	{
+		return PACK_FILE_NAME.equals(fileName);
+	}
+
+	@Override
+	public boolean isWrittenByThisClient(final String fileName)
+	{
+		return PACK_FILE_NAME.equals(fileName) && packFile.length() == packSize && packFile.lastModified() == packLastModified;
+	}
+
+	@Override
+	public void deletePresetFolderIfEmpty()
+	{
+		folderLock.lock();
+		try
+		{
+			if (records.isEmpty() && readPack().records.isEmpty() && packFile.exists() && !packFile.delete())
+			{
+				log.warn(String.format("Could not delete %s", PACK_FILE_NAME));
+			}
+
+			if (!packFile.exists())
+			{
+				presetStorage.deletePresetFolderIfEmpty();
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not read preset pack file", e);
+		}
+		finally
+		{
+			folderLock.unlock();
+		}
+	}
+
+	/**
+	 * Lets plugin configs of a saved preset be dropped from memory, they are loaded again from the pack file.
+	 */
+	private void releasePluginConfigs(final PluginPreset pluginPreset)
+	{
+		final long id = pluginPreset.getId();
+		pluginPreset.setPluginConfigsLoader(() -> loadPluginConfigs(id));
+		pluginPreset.releasePluginConfigs();
+	}
+
+	/**
+	 * Loads plugin configs of a saved preset. The pack file is read again when the record is not where this client
+	 * last saw it, e.g. after another client compacted the pack file.
+	 * Called from the event dispatch thread, so the folder lock is not taken. Records are only appended or moved
+	 * to a new pack file, a record that is read while it is written fails its checksum or hash and is read again.
+	 *
+	 * @return plugin configs, or null if they could not be read
+	 */
+	List<PluginConfig> loadPluginConfigs(final long id)
+	{
+		try
+		{
+			final PackedRecord record = records.get(id);
+			if (record != null)
+			{
+				String json = readRecord(record);
+				if (json == null)
+				{
+					json = rereadRecord(record);
+				}
+
+				final PluginPreset pluginPreset = json != null ? presetStorage.parsePluginPresetFrom(json) : null;
+				if (pluginPreset != null && pluginPreset.getId() == id)
+				{
+					return pluginPreset.getPluginConfigs();
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn(String.format("Failed to load preset configurations from %s", PACK_FILE_NAME), e);
+		}
+
+		log.warn(String.format("Could not find configurations of preset %d, it is kept unchanged", id));
+		return null;
+	}
+
+	/**
+	 * Reads the record at its known position.
+	 *
+	 * @return preset json, or null if the record at the position is not the expected record
+	 */
+	private String readRecord(final PackedRecord record)
+	{
+		final long position = record.position;
+		final String hash = record.hash;
+		if (position < Integer.BYTES + RECORD_HEADER_SIZE || hash == null)
+		{
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ))
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate(record.length + RECORD_OVERHEAD);
+			readFully(channel, buffer, position - RECORD_HEADER_SIZE);
+			buffer.flip();
+
+			final int length = buffer.getInt();
+			final byte type = buffer.get();
+			final long id = buffer.getLong();
+			if (length != record.length || type != PUT || id != record.id)
+			{
+				return null;
+			}
+
+			final byte[] payload = new byte[length];
+			buffer.get(payload);
+			if (buffer.getInt() != checksum(type, id, payload))
+			{
+				return null;
+			}
+
+			final String json = new String(payload, StandardCharsets.UTF_8);
+			return hash.equals(PluginPresetsStorage.hash(json)) ? json : null;
+		}
+		catch (IOException e)
+		{
+			log.debug(String.format("Could not read preset %d at its position in %s", record.id, PACK_FILE_NAME), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the latest record of the preset from the whole pack file, and remembers its position when it is the
+	 * same preset this client knows.
+	 *
+	 * @return preset json, or null if the pack file has no record of the preset
+	 */
+	private String rereadRecord(final PackedRecord record) throws IOException
+	{
+		final Pack pack = readPack();
+		final PackedRecord packedRecord = pack.records.get(record.id);
+		if (packedRecord == null)
+		{
+			return null;
+		}
+
+		if (packedRecord.hash.equals(record.hash))
+		{
+			record.position = packedRecord.position;
+		}
+		return pack.json(packedRecord);
+	}
+
+	private PluginPreset toPluginPreset(final Pack pack, final PackedRecord record)
+	{
+		final PluginPreset pluginPreset = presetStorage.parsePluginPresetFrom(pack.json(record));
+		if (pluginPreset == null || pluginPreset.getId() != record.id)
+		{
+			log.warn(String.format("Plugin Preset data is malformed in %s and could not be loaded, preset %d", PACK_FILE_NAME, record.id));
+			return null;
+		}
+
+		pluginPreset.setLocal(true);
+		record.setHeader(pluginPreset);
+		return pluginPreset;
+	}
+
+	private static void writeRecord(final DataOutputStream out, final byte type, final long id, final byte[] payload) throws IOException
+	{
+		out.writeInt(payload.length);
+		out.writeByte(type);
+		out.writeLong(id);
+		out.write(payload);
+		out.writeInt(checksum(type, id, payload));
+	}
+
+	private static int checksum(final byte type, final long id, final byte[] payload)
+	{
+		final CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(Byte.BYTES + Long.BYTES).put(type).putLong(id).array());
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Appends records to the end of the valid part of the pack file, and syncs them to disk.
+	 *
+	 * @param end End of the last valid record, bytes after it are left by an interrupted save
+	 * @return Position of the appended records
+	 */
+	private long append(final byte[] data, final long end) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+		{
+			long position = end;
+			if (channel.size() < Integer.BYTES)
+			{
+				channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC), 0);
+				position = Integer.BYTES;
+			}
+			else if (end < 0 || end > channel.size())
+			{
+				position = channel.size();
+			}
+
+			channel.truncate(position);
+
+			final ByteBuffer buffer = ByteBuffer.wrap(data);
+			long writePosition = position;
+			while (buffer.hasRemaining())
+			{
+				writePosition += channel.write(buffer, writePosition);
+			}
+			channel.force(false);
+			return position;
+		}
+	}
+
+	/**
+	 * Rewrites the pack file with only the latest records once outdated records take most of it.
+	 */
+	private void compactIfNeeded(final boolean changedByOtherClient)
+	{
+		try
+		{
+			final long size = packFile.length();
+			if (size < COMPACTION_MIN_SIZE)
+			{
+				return;
+			}
+
+			final Pack pack = readPack();
+			final long liveSize = Integer.BYTES + pack.records.values().stream()
+				.mapToLong(record -> record.length + RECORD_OVERHEAD)
+				.sum();
+			if (size < liveSize * 2)
+			{
+				return;
+			}
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+
+			final Map<Long, Long> positions = new LinkedHashMap<>();
+			for (PackedRecord record : pack.records.values())
+			{
+				positions.put(record.id, (long) bytes.size() + RECORD_HEADER_SIZE);
+				writeRecord(out, PUT, record.id, pack.payload(record));
+			}
+
+			try (FileChannel channel = FileChannel.open(compactionFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+				while (buffer.hasRemaining())
+				{
+					channel.write(buffer);
+				}
+				channel.force(false);
+			}
+
+			try
+			{
+				Files.move(compactionFile.toPath(), packFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(compactionFile.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			records.values().forEach(record ->
+			{
+				// Records of saves that are not written yet and outdated records keep their position
+				final PackedRecord packedRecord = pack.records.get(record.id);
+				if (packedRecord != null && packedRecord.hash.equals(record.hash))
+				{
+					record.position = positions.get(record.id);
+				}
+			});
+
+			if (!changedByOtherClient)
+			{
+				rememberPackState();
+			}
+			log.debug(String.format("Compacted %s from %d to %d bytes", PACK_FILE_NAME, size, bytes.size()));
+		}
+		catch (IOException e)
+		{
+			// Pack file stays valid, compaction is tried again on next save
+			log.warn(String.format("Could not compact %s", PACK_FILE_NAME), e);
+			if (compactionFile.exists() && !compactionFile.delete())
+			{
+				log.warn(String.format("Could not delete %s", compactionFile.getName()));
+			}
+		}
+	}
+
+	private void rememberPackState()
+	{
+		packSize = packFile.length();
+		packLastModified = packFile.lastModified();
+	}
+
+	/**
+	 * Reads latest records of every preset in the pack file.
+	 */
+	private Pack readPack() throws IOException
+	{
+		if (!packFile.isFile())
+		{
+			return new Pack(null, new LinkedHashMap<>(), -1);
+		}
+
+		try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ))
+		{
+			final long size = channel.size();
+			if (size < Integer.BYTES)
+			{
+				return new Pack(null, new LinkedHashMap<>(), -1);
+			}
+
+			if (size > Integer.MAX_VALUE)
+			{
+				throw new IOException(String.format("%s is too large", PACK_FILE_NAME));
+			}
+
+			final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			readFully(channel, buffer, 0);
+			buffer.flip();
+			if (buffer.getInt() != MAGIC)
+			{
+				throw new IOException(String.format("%s is not a preset pack file", PACK_FILE_NAME));
+			}
+
+			final Map<Long, PackedRecord> packedRecords = new LinkedHashMap<>();
+			long end = buffer.position();
+			while (buffer.remaining() >= RECORD_OVERHEAD)
+			{
+				final int length = buffer.getInt();
+				if (length < 0 || buffer.remaining() < length + RECORD_OVERHEAD - Integer.BYTES)
+				{
+					break;
+				}
+
+				final byte type = buffer.get();
+				final long id = buffer.getLong();
+				final int position = buffer.position();
+				final byte[] payload = new byte[length];
+				buffer.get(payload);
+
+				if (buffer.getInt() != checksum(type, id, payload))
+				{
+					break;
+				}
+
+				if (type == PUT)
+				{
+					// Replace the previous record, so that records stay in order of their latest change
+					packedRecords.remove(id);
+					packedRecords.put(id, new PackedRecord(id, position, length, PluginPresetsStorage.hash(new String(payload, StandardCharsets.UTF_8))));
+				}
+				else
+				{
+					packedRecords.remove(id);
+				}
+				end = buffer.position();
+			}
+
+			return new Pack(buffer, packedRecords, end);
+		}
+	}
+
+	/**
+	 * Reads from the position until the buffer is full.
+	 */
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new EOFException(String.format("%s ended before the record was read", PACK_FILE_NAME));
+			}
+		}
+	}
+
+	/**
+	 * Latest records read from the pack file, and the contents of the file they can be read from.
+	 */
+	@AllArgsConstructor
+	private static class Pack
+	{
+		private final ByteBuffer buffer;
+		private final Map<Long, PackedRecord> records;
+		private final long end;
+
+		private byte[] payload(final PackedRecord record)
+		{
+			final byte[] payload = new byte[record.length];
+			final ByteBuffer slice = buffer.duplicate();
+			slice.position((int) record.position);
+			slice.get(payload);
+			return payload;
+		}
+
+		private String json(final PackedRecord record)
+		{
+			return new String(payload(record), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Records of a save, appended to the pack file with a single write and fsync.
+	 */
+	private class PackedSave implements PresetSave
+	{
+		private final List<Long> deletedIds = new ArrayList<>();
+		private final List<PackedRecord> writtenRecords = new ArrayList<>();
+		private final List<byte[]> payloads = new ArrayList<>();
+
+		/**
+		 * Hashes of records this client last knew of written presets, used to notice changes of other clients.
+		 */
+		private final Map<Long, String> previousHashes = new HashMap<>();
+
+		private final PresetChanges presetChanges;
+
+		private PackedSave(final PresetChanges presetChanges)
+		{
+			this.presetChanges = presetChanges;
+		}
+
+		private boolean isEmpty()
+		{
+			return deletedIds.isEmpty() && writtenRecords.isEmpty();
+		}
+
+		@Override
+		public boolean write()
+		{
+			if (isEmpty())
+			{
+				return true;
+			}
+
+			folderLock.lock();
+			try
+			{
+				return writeRecords();
+			}
+			finally
+			{
+				synchronized (PackedPresetStorage.this)
+				{
+					unwrittenSaves.remove(this);
+				}
+				folderLock.unlock();
+			}
+		}
+
+		private boolean writeRecords()
+		{
+			// Another client saved since this client last wrote or read the pack file, its records must be kept
+			final boolean changedByOtherClient = packFile.exists() && !isWrittenByThisClient(PACK_FILE_NAME);
+			final Pack pack;
+			try
+			{
+				pack = changedByOtherClient ? readPack() : null;
+			}
+			catch (IOException e)
+			{
+				log.warn("Could not read preset pack file, presets were not saved", e);
+				return failed();
+			}
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes);
+			final long[] positions = new long[writtenRecords.size()];
+			try
+			{
+				for (Long id : deletedIds)
+				{
+					writeRecord(out, DELETE, id, new byte[0]);
+				}
+
+				for (int i = 0; i < writtenRecords.size(); i++)
+				{
+					final PackedRecord record = writtenRecords.get(i);
+					final PackedRecord latestRecord = pack != null ? pack.records.get(record.id) : null;
+					if (latestRecord != null && !latestRecord.hash.equals(previousHashes.get(record.id)))
+					{
+						// Last writer wins
+						log.warn(String.format("Preset %s was changed by another client, overwriting it with changes from this client", record.name));
+					}
+
+					positions[i] = bytes.size() + RECORD_HEADER_SIZE;
+					writeRecord(out, PUT, record.id, payloads.get(i));
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("Could not pack presets", e);
+				return failed();
+			}
+
+			// Another client may have deleted the folder when it had no presets
+			if (!packFile.getParentFile().exists() && !packFile.getParentFile().mkdirs())
+			{
+				log.warn(String.format("Could not create %s", packFile.getParent()));
+			}
+
+			try
+			{
+				final long start = append(bytes.toByteArray(), pack != null ? pack.end : packSize);
+				for (int i = 0; i < writtenRecords.size(); i++)
+				{
+					writtenRecords.get(i).position = start + positions[i];
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("Could not write presets to preset pack file", e);
+				return failed();
+			}
+
+			if (!changedByOtherClient)
+			{
+				// Changes of other clients are left for the folder watcher to reload
+				rememberPackState();
+			}
+
+			compactIfNeeded(changedByOtherClient);
+			return true;
+		}
+
+		/**
+		 * Makes presets of the save be written again on next save.
+		 */
+		private boolean failed()
+		{
+			synchronized (PackedPresetStorage.this)
+			{
+				writtenRecords.forEach(record -> record.hash = null);
+			}
+			return false;
+		}
+
+		@Override
+		public void releasePluginConfigs()
+		{
+			presetChanges.releasePluginConfigs(PackedPresetStorage.this::releasePluginConfigs);
+		}
+	}
+
+	/**
+	 * Location of a preset in the pack file, and preset values that are stored outside of plugin configs.
+	 */
+	private static class PackedRecord implements PresetChanges.StoredPreset
+	{
+		private final long id;
+
+		/**
+		 * Updated by the storage thread and by threads that load plugin configs without the folder lock.
+		 */
+		private volatile long position;
+		private final int length;
+
+		/**
+		 * Hash of the preset json, null if the record could not be written.
+		 */
+		private volatile String hash;
+		private String name;
+		private Keybind keybind;
+		private Boolean loadOnFocus;
+
+		private PackedRecord(final long id, final long position, final int length, final String hash)
+		{
+			this.id = id;
+			this.position = position;
+			this.length = length;
+			this.hash = hash;
+		}
+
+		/**
+		 * Creates a record of a preset that is not written yet, its position is set once it is written.
+		 */
+		private static PackedRecord of(final PluginPreset preset, final byte[] payload, final String hash)
+		{
+			final PackedRecord record = new PackedRecord(preset.getId(), -1, payload.length, hash);
+			record.setHeader(preset);
+			return record;
+		}
+
+		private void setHeader(final PluginPreset preset)
+		{
+			name = preset.getName();
+			keybind = preset.getKeybind();
+			loadOnFocus = preset.getLoadOnFocus();
+		}
+
+		@Override
+		public String getHash()
+		{
+			return hash;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public Keybind getKeybind()
+		{
+			return keybind;
+		}
+
+		@Override
+		public Boolean getLoadOnFocus()
+		{
+			return loadOnFocus;
+		}
+	}
+}
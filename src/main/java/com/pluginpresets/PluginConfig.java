@@ -26,7 +26,6 @@ package com.pluginpresets;
 
 import java.util.List;
 import java.util.stream.Collectors;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
 /**
@@ -39,13 +38,49 @@ import lombok.Data;
  *                   Some plugins don't have any configurable settings e.g. Ammo Plugin, in those cases this will be an empty array.
  */
 @Data
-@AllArgsConstructor
 public class PluginConfig
 {
 	private String name;
 	private String configName;
 	private Boolean enabled;
-	private List<PluginSetting> settings;
+
+	/**
+	 * Settings indexed by key.
+	 */
+	private KeyedList<String, PluginSetting> settings;
+
+	public PluginConfig(String name, String configName, Boolean enabled, List<PluginSetting> settings)
+	{
+		this.name = name;
+		this.configName = configName;
+		this.enabled = enabled;
+		setSettings(settings);
+	}
+
+	public List<PluginSetting> getSettings()
+	{
+		return settings;
+	}
+
+	/**
+	 * Sets settings. A list that is not already indexed by key is copied, changes must then be made
+	 * through {@link #getSettings()}.
+	 */
+	public void setSettings(List<PluginSetting> settings)
+	{
+		this.settings = settings != null ? KeyedList.of(settings, PluginSetting::getKey) : null;
+	}
+
+	/**
+	 * Creates a copy of the config with copies of its settings.
+	 */
+	public PluginConfig copy()
+	{
+		List<PluginSetting> copiedSettings = settings == null ? null : settings.stream()
+			.map(PluginSetting::copy)
+			.collect(Collectors.toList());
+		return new PluginConfig(name, configName, enabled, copiedSettings);
+	}
 
 	public Boolean match(PluginConfig presetConfig)
 	{
@@ -60,15 +95,11 @@ public class PluginConfig
 			return false;
 		}
 
-		List<PluginSetting> currentSettings = settings;
 		// Compare plugin settings from preset to current config settings
 		for (PluginSetting presetConfigSetting : presetConfig.getSettings())
 		{
 			// Get current config setting for compared preset setting
-			PluginSetting currentConfigSetting = currentSettings.stream()
-				.filter(c ->c.getKey().equals(presetConfigSetting.getKey()))
-				.findFirst()
-				.orElse(null);
+			PluginSetting currentConfigSetting = getSetting(presetConfigSetting.getKey());
 
 			if (currentConfigSetting != null &&
 				presetConfigSetting.getValue() != null &&
@@ -82,19 +113,15 @@ public class PluginConfig
 
 	public PluginSetting getSetting(PluginSetting searchedSetting)
 	{
-		PluginSetting presetSetting = null;
-		if (settings != null)
-		{
-			for (PluginSetting setting : settings)
-			{
-				if (setting.getKey().equals(searchedSetting.getKey()))
-				{
-					presetSetting = setting;
-					break;
-				}
-			}
-		}
-		return presetSetting;
+		return getSetting(searchedSetting.getKey());
+	}
+
+	/**
+	 * Finds the first setting with the given key.
+	 */
+	public PluginSetting getSetting(String key)
+	{
+		return settings != null ? settings.getByKey(key) : null;
 	}
 
 	public List<String> getSettingKeys()
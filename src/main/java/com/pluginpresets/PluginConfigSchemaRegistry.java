@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import net.runelite.client.config.Config;
+import net.runelite.client.config.ConfigDescriptor;
+import net.runelite.client.config.ConfigManager;
+import net.runelite.client.config.RuneLiteConfig;
+import net.runelite.client.plugins.Plugin;
+import net.runelite.client.plugins.PluginManager;
+
+/**
+ * Caches the config groups, setting keys and setting names of plugins, so that reading current configs
+ * only has to read the values. Invalidated when plugins are loaded, unloaded, started or stopped.
+ */
+@Singleton
+public class PluginConfigSchemaRegistry
+{
+	private static final Set<String> IGNORED_PLUGINS = new HashSet<>(PluginPresetsPlugin.IGNORED_PLUGINS);
+	private static final Set<String> IGNORED_KEYS = new HashSet<>(PluginPresetsPlugin.IGNORED_KEYS);
+
+	private final PluginManager pluginManager;
+	private final ConfigManager configManager;
+	private final RuneLiteConfig runeLiteConfig;
+
+	/**
+	 * Cached schemas, null when they have to be read again.
+	 */
+	private volatile Schemas schemas;
+
+	@Inject
+	public PluginConfigSchemaRegistry(PluginManager pluginManager, ConfigManager configManager, RuneLiteConfig runeLiteConfig)
+	{
+		this.pluginManager = pluginManager;
+		this.configManager = configManager;
+		this.runeLiteConfig = runeLiteConfig;
+	}
+
+	public void invalidate()
+	{
+		schemas = null;
+	}
+
+	/**
+	 * Schemas of the plugins that can be saved to presets, in plugin manager order.
+	 */
+	public List<PluginSchema> getPluginSchemas()
+	{
+		return getSchemas().plugins;
+	}
+
+	public PluginSchema getRuneLiteSchema()
+	{
+		return getSchemas().runeLite;
+	}
+
+	/**
+	 * Finds the plugin whose on/off status is stored in the given RuneLite config key.
+	 */
+	public PluginSchema getPluginSchemaByEnabledKey(String enabledKey)
+	{
+		return getSchemas().pluginsByEnabledKey.get(enabledKey);
+	}
+
+	private Schemas getSchemas()
+	{
+		Schemas current = schemas;
+		if (current == null)
+		{
+			current = readSchemas();
+			schemas = current;
+		}
+		return current;
+	}
+
+	private Schemas readSchemas()
+	{
+		List<PluginSchema> plugins = new ArrayList<>();
+		Map<String, PluginSchema> pluginsByEnabledKey = new HashMap<>();
+
+		for (Plugin p : pluginManager.getPlugins())
+		{
+			String name = p.getName();
+			if (IGNORED_PLUGINS.contains(name))
+			{
+				continue;
+			}
+
+			String enabledKey = p.getClass().getSimpleName().toLowerCase();
+			Config pluginConfigProxy = pluginManager.getPluginConfigProxy(p);
+
+			PluginSchema schema;
+			if (pluginConfigProxy == null)
+			{
+				schema = new PluginSchema(p, name, enabledKey, Collections.emptyList());
+			}
+			else
+			{
+				ConfigDescriptor configDescriptor = configManager.getConfigDescriptor(pluginConfigProxy);
+				schema = new PluginSchema(p, name, configDescriptor.getGroup().value(), readSettingSchemas(configDescriptor));
+			}
+
+			plugins.add(schema);
+			pluginsByEnabledKey.put(enabledKey, schema);
+		}
+
+		ConfigDescriptor runeLiteDescriptor = configManager.getConfigDescriptor(runeLiteConfig);
+		PluginSchema runeLite = new PluginSchema(null, "RuneLite", RuneLiteConfig.GROUP_NAME, readSettingSchemas(runeLiteDescriptor));
+
+		return new Schemas(plugins, runeLite, pluginsByEnabledKey);
+	}
+
+	private static List<SettingSchema> readSettingSchemas(ConfigDescriptor configDescriptor)
+	{
+		List<SettingSchema> settings = new ArrayList<>();
+
+		configDescriptor.getItems().forEach(i ->
+		{
+			if (!IGNORED_KEYS.contains(i.key()))
+			{
+				String settingName = i.name();
+				if (i.name().equals(""))
+				{
+					settingName = PluginPresetsUtils.splitAndCapitalize(settingName);
+				}
+
+				settings.add(new SettingSchema(i.key(), settingName));
+			}
+		});
+
+		return settings;
+	}
+
+	@AllArgsConstructor
+	private static class Schemas
+	{
+		private final List<PluginSchema> plugins;
+		private final PluginSchema runeLite;
+		private final Map<String, PluginSchema> pluginsByEnabledKey;
+	}
+
+	/**
+	 * Config group and settings of a plugin.
+	 *
+	 * @param plugin     The plugin, null for RuneLite settings
+	 * @param name       Name of the plugin
+	 * @param configName RuneLite config name
+	 * @param settings   Settings that can be saved to presets
+	 */
+	@Data
+	@AllArgsConstructor
+	public static class PluginSchema
+	{
+		private final Plugin plugin;
+		private final String name;
+		private final String configName;
+		private final List<SettingSchema> settings;
+	}
+
+	@Data
+	@AllArgsConstructor
+	public static class SettingSchema
+	{
+		private final String key;
+		private final String name;
+	}
+}
@@ -24,9 +24,12 @@
  */
 package com.pluginpresets;
 
+import java.lang.ref.SoftReference;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 import lombok.Getter;
 import lombok.Setter;
 import net.runelite.client.config.Keybind;
@@ -66,9 +69,35 @@ public class PluginPreset
 	@Setter
 	private Boolean loadOnFocus;
 
+	/**
+	 * Plugin configs that are held in memory by name, null while they are not loaded or have been released.
+	 */
+	private KeyedList<String, PluginConfig> pluginConfigs;
+
+	/**
+	 * Released or read only plugin configs, which can be dropped under memory pressure and loaded again.
+	 */
+	private transient SoftReference<KeyedList<String, PluginConfig>> softPluginConfigs;
+
+	/**
+	 * Loads plugin configs of a preset that is stored to a file, e.g. when the preset was created from the preset
+	 * index or its plugin configs were released. Returns null if the plugin configs can't be read.
+	 */
+	@Setter
+	private transient Supplier<List<PluginConfig>> pluginConfigsLoader;
+
+	/**
+	 * Set when plugin configs could not be loaded from the store. The preset then has no plugin configs and is
+	 * never written back to the store, so that the stored configs are not replaced with an empty list.
+	 */
 	@Getter
+	private transient boolean unavailable;
+
+	/**
+	 * Whether the preset contains custom settings, used while the plugin configs are not loaded.
+	 */
 	@Setter
-	private List<PluginConfig> pluginConfigs;
+	private transient boolean customSettings;
 
 	public PluginPreset(String name)
 	{
@@ -77,70 +106,147 @@ public class PluginPreset
 		this.keybind = null;
 		this.local = true;
 		this.loadOnFocus = null;
-		this.pluginConfigs = new ArrayList<>();
+		this.pluginConfigs = new KeyedList<>(new ArrayList<>(), PluginConfig::getName);
 	}
 
-	public Boolean match(CurrentConfigurations currentConfigurations)
+	/**
+	 * Gets plugin configs and keeps them in memory, so that changes made to them are saved.
+	 * Plugin configs of an unavailable preset are an empty list that can't be modified.
+	 */
+	public synchronized List<PluginConfig> getPluginConfigs()
 	{
-		for (PluginConfig presetConfig : pluginConfigs)
+		if (pluginConfigs == null)
 		{
-			PluginConfig currentConfig = null;
-			for (PluginConfig config : currentConfigurations.getPluginConfigs())
+			final KeyedList<String, PluginConfig> configs = readConfigs();
+			if (unavailable)
 			{
-				if (config.getName().equals(presetConfig.getName()))
-				{
-					currentConfig = config;
-					break;
-				}
+				return Collections.emptyList();
 			}
 
-			if (currentConfig == null)
-			{
-				continue;
-			}
+			pluginConfigs = configs;
+			softPluginConfigs = null;
+		}
+		return pluginConfigs;
+	}
 
-			if (presetConfig.getEnabled() != null && !presetConfig.getEnabled().equals(currentConfig.getEnabled()))
-			{
-				return false;
-			}
+	/**
+	 * Sets plugin configs. A list that is not already indexed by name is copied, changes must then be made
+	 * through {@link #getPluginConfigs()}.
+	 */
+	public synchronized void setPluginConfigs(List<PluginConfig> pluginConfigs)
+	{
+		this.pluginConfigs = pluginConfigs != null ? KeyedList.of(pluginConfigs, PluginConfig::getName) : null;
+		this.softPluginConfigs = null;
+	}
+
+	/**
+	 * Gets plugin configs for reading, without keeping them in memory. The returned configs must not be modified.
+	 */
+	public synchronized List<PluginConfig> readPluginConfigs()
+	{
+		final List<PluginConfig> configs = readConfigs();
+		return unavailable ? Collections.emptyList() : configs;
+	}
+
+	/**
+	 * Gets plugin configs held in memory, or released plugin configs that are loaded again if they were dropped.
+	 *
+	 * @return plugin configs, or null if the preset has no plugin configs or they can't be read
+	 */
+	private KeyedList<String, PluginConfig> readConfigs()
+	{
+		if (pluginConfigs != null || pluginConfigsLoader == null || unavailable)
+		{
+			return pluginConfigs;
+		}
 
-			List<PluginSetting> currentSettings = currentConfig.getSettings();
-			// Compare plugin settings from preset to current config settings
-			for (PluginSetting presetConfigSetting : presetConfig.getSettings())
+		KeyedList<String, PluginConfig> configs = softPluginConfigs != null ? softPluginConfigs.get() : null;
+		if (configs == null)
+		{
+			final List<PluginConfig> loadedConfigs = pluginConfigsLoader.get();
+			if (loadedConfigs == null)
 			{
-				// Get current config setting for compared preset setting
-				PluginSetting currentConfigSetting = currentSettings.stream()
-					.filter(c -> c.getKey().equals(presetConfigSetting.getKey()))
-					.findFirst()
-					.orElse(null);
-
-				if (currentConfigSetting != null &&
-					presetConfigSetting.getValue() != null &&
-					!presetConfigSetting.getValue().equals(currentConfigSetting.getValue()))
-				{
-					return false;
-				}
+				// Stays unavailable until the preset is loaded again from the store
+				unavailable = true;
+				return null;
 			}
+			configs = KeyedList.of(loadedConfigs, PluginConfig::getName);
+			softPluginConfigs = new SoftReference<>(configs);
 		}
-		return true;
+		return configs;
 	}
 
-	public PluginConfig getConfig(final PluginConfig searchedConfig)
+	/**
+	 * Allows plugin configs to be dropped from memory, when they are stored unchanged to the preset file.
+	 */
+	public synchronized void releasePluginConfigs()
+	{
+		if (pluginConfigs != null && pluginConfigsLoader != null)
+		{
+			customSettings = containsCustomSettings();
+			softPluginConfigs = new SoftReference<>(pluginConfigs);
+			pluginConfigs = null;
+		}
+	}
+
+	/**
+	 * Checks whether plugin configs are held in memory, plugin configs that are not held can't have been changed.
+	 */
+	public synchronized boolean isLoaded()
+	{
+		return pluginConfigs != null;
+	}
+
+	/**
+	 * Checks whether plugin configs can be read without loading them from the store.
+	 */
+	public synchronized boolean isReadable()
 	{
-		PluginConfig presetConfig = null;
-		for (PluginConfig config : pluginConfigs)
+		return pluginConfigs != null || pluginConfigsLoader == null || unavailable
+			|| (softPluginConfigs != null && softPluginConfigs.get() != null);
+	}
+
+	public synchronized boolean containsCustomSettings()
+	{
+		if (pluginConfigs == null && pluginConfigsLoader != null && (softPluginConfigs == null || softPluginConfigs.get() == null))
+		{
+			// Use the stored value instead of loading plugin configs
+			return customSettings;
+		}
+
+		final List<PluginConfig> configs = readPluginConfigs();
+		if (configs == null)
+		{
+			return false;
+		}
+
+		for (PluginConfig config : configs)
 		{
-			if (config.getName().equals(searchedConfig.getName()))
+			if (config.containsCustomSettings())
 			{
-				presetConfig = config;
-				break;
+				return true;
 			}
 		}
-		return presetConfig;
+		return false;
+	}
+
+	public PluginConfig getConfig(final PluginConfig searchedConfig)
+	{
+		return getConfig(searchedConfig.getName());
+	}
+
+	/**
+	 * Finds the first plugin config with the given name.
+	 */
+	public synchronized PluginConfig getConfig(final String name)
+	{
+		// The index of released plugin configs is dropped together with them
+		final KeyedList<String, PluginConfig> configs = readConfigs();
+		return configs != null ? configs.getByKey(name) : null;
 	}
 
 	public boolean isEmpty()
 	{
-		return pluginConfigs.isEmpty();
+		return readPluginConfigs().isEmpty();
 	}
 }
@@ -24,12 +24,12 @@
  */
 package com.pluginpresets;
 
+import com.pluginpresets.PluginConfigSchemaRegistry.PluginSchema;
+import com.pluginpresets.PluginConfigSchemaRegistry.SettingSchema;
 import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import net.runelite.client.config.Config;
-import net.runelite.client.config.ConfigDescriptor;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.config.RuneLiteConfig;
 import net.runelite.client.plugins.PluginManager;
@@ -42,15 +42,15 @@ public class PluginPresetsCurrentConfigManager
 {
 	private final PluginManager pluginManager;
 	private final ConfigManager configManager;
-	private final RuneLiteConfig runeLiteConfig;
+	private final PluginConfigSchemaRegistry schemaRegistry;
 	private final CustomSettingsManager customSettingsManager;
 
 	@Inject
-	public PluginPresetsCurrentConfigManager(PluginManager pluginManager, ConfigManager configManager, RuneLiteConfig runeLiteConfig, CustomSettingsManager customSettingsManager)
+	public PluginPresetsCurrentConfigManager(PluginManager pluginManager, ConfigManager configManager, PluginConfigSchemaRegistry schemaRegistry, CustomSettingsManager customSettingsManager)
 	{
 		this.pluginManager = pluginManager;
 		this.configManager = configManager;
-		this.runeLiteConfig = runeLiteConfig;
+		this.schemaRegistry = schemaRegistry;
 		this.customSettingsManager = customSettingsManager;
 	}
 
@@ -58,88 +58,45 @@ public class PluginPresetsCurrentConfigManager
 	{
 		ArrayList<PluginConfig> pluginConfigs = new ArrayList<>();
 
-		pluginManager.getPlugins().forEach(p ->
+		schemaRegistry.getPluginSchemas().forEach(schema ->
 		{
-			String name = p.getName();
-			if (!PluginPresetsPlugin.IGNORED_PLUGINS.contains(name))
-			{
-				Config pluginConfigProxy = pluginManager.getPluginConfigProxy(p);
-
-				boolean enabled = pluginManager.isPluginEnabled(p);
+			String configName = schema.getConfigName();
+			boolean enabled = pluginManager.isPluginEnabled(schema.getPlugin());
 
-				ArrayList<PluginSetting> pluginSettings = new ArrayList<>();
-				String configName;
+			ArrayList<PluginSetting> pluginSettings = readSettings(schema);
 
-				if (pluginConfigProxy == null)
-				{
-					configName = p.getClass().getSimpleName().toLowerCase();
-				}
-				else
-				{
-					ConfigDescriptor configDescriptor = configManager.getConfigDescriptor(pluginConfigProxy);
-					configName = configDescriptor.getGroup().value();
+			List<CustomSetting> configsCustomSettings = customSettingsManager.getCustomConfigsFor(configName);
+			if (!configsCustomSettings.isEmpty())
+			{
+				// Don't add duplicate custom settings: config.key must be unique
+				ArrayList<String> addedCustomSettings = new ArrayList<>();
 
-					configDescriptor.getItems().forEach(i ->
-					{
-						if (!PluginPresetsPlugin.IGNORED_KEYS.contains(i.key()))
-						{
-							String settingName = i.name();
-							if (i.name().equals(""))
-							{
-								settingName = PluginPresetsUtils.splitAndCapitalize(settingName);
-							}
-
-							String configuration = configManager.getConfiguration(configDescriptor.getGroup().value(), i.key());
-							PluginSetting pluginSetting = new PluginSetting(settingName, i.key(),
-								configuration, null, null);
-							pluginSettings.add(pluginSetting);
-						}
-					});
-				}
-
-				List<CustomSetting> configsCustomSettings = customSettingsManager.getCustomConfigsFor(configName);
-				if (!configsCustomSettings.isEmpty())
+				configsCustomSettings.forEach(customSetting ->
 				{
-					// Don't add duplicate custom settings: config.key must be unique
-					ArrayList<String> addedCustomSettings = new ArrayList<>();
-
-					configsCustomSettings.forEach(customSetting ->
+					PluginSetting setting = customSetting.getSetting();
+					String customConfigName = setting.getCustomConfigName();
+					String customConfigKey = setting.getKey();
+					String customConfig = customConfigName + "." + customConfigKey;
+					if (!addedCustomSettings.contains(customConfig))
 					{
-						PluginSetting setting = customSetting.getSetting();
-						String customConfigName = setting.getCustomConfigName();
-						String customConfigKey = setting.getKey();
-						String customConfig = customConfigName + "." + customConfigKey;
-						if (!addedCustomSettings.contains(customConfig))
-						{
-							String value = configManager.getConfiguration(customConfigName, setting.getKey());
-							PluginSetting pluginSetting = new PluginSetting(setting.getName(), setting.getKey(), value, customConfigName, setting.getConfigName());
-							pluginSettings.add(pluginSetting);
-							addedCustomSettings.add(customConfig);
-						}
-					});
-				}
-
-				PluginConfig pluginConfig = new PluginConfig(name, configName, enabled, pluginSettings);
-
-				pluginConfigs.add(pluginConfig);
+						String value = configManager.getConfiguration(customConfigName, setting.getKey());
+						PluginSetting pluginSetting = new PluginSetting(setting.getName(), setting.getKey(), value, customConfigName, setting.getConfigName());
+						pluginSettings.add(pluginSetting);
+						addedCustomSettings.add(customConfig);
+					}
+				});
 			}
+
+			PluginConfig pluginConfig = new PluginConfig(schema.getName(), configName, enabled, pluginSettings);
+
+			pluginConfigs.add(pluginConfig);
 		});
 
 		// Add RuneLite settings
-		ArrayList<PluginSetting> runelitePluginSettings = new ArrayList<>();
+		PluginSchema runeLiteSchema = schemaRegistry.getRuneLiteSchema();
+		ArrayList<PluginSetting> runelitePluginSettings = readSettings(runeLiteSchema);
 
-		PluginConfig runeliteConfig = new PluginConfig("RuneLite", RuneLiteConfig.GROUP_NAME, true, runelitePluginSettings);
-
-		configManager.getConfigDescriptor(runeLiteConfig).getItems().forEach(i ->
-		{
-			if (!PluginPresetsPlugin.IGNORED_KEYS.contains(i.key()))
-			{
-				String configuration = configManager.getConfiguration(RuneLiteConfig.GROUP_NAME, i.key());
-				PluginSetting pluginSetting = new PluginSetting(i.name(), i.key(),
-					configuration, null, null);
-				runelitePluginSettings.add(pluginSetting);
-			}
-		});
+		PluginConfig runeliteConfig = new PluginConfig(runeLiteSchema.getName(), RuneLiteConfig.GROUP_NAME, true, runelitePluginSettings);
 
 		// Add possible custom RuneLite settings
 		List<CustomSetting> customRuneLiteSettings = customSettingsManager.getCustomConfigsFor(RuneLiteConfig.GROUP_NAME);
@@ -149,9 +106,9 @@ public class PluginPresetsCurrentConfigManager
 			{
 				PluginSetting setting = customSetting.getSetting();
 				String value = configManager.getConfiguration(setting.getCustomConfigName(), setting.getKey());
-				setting.setValue(value);
+				PluginSetting pluginSetting = new PluginSetting(setting.getName(), setting.getKey(), value, setting.getCustomConfigName(), setting.getConfigName());
 
-				runelitePluginSettings.add(setting);
+				runeliteConfig.getSettings().add(pluginSetting);
 			});
 		}
 
@@ -159,4 +116,35 @@ public class PluginPresetsCurrentConfigManager
 
 		return pluginConfigs;
 	}
+
+	/**
+	 * Name of the plugin whose on/off status is stored in the given RuneLite config key, null if there is none.
+	 */
+	public String getPluginName(String enabledKey)
+	{
+		PluginSchema schema = schemaRegistry.getPluginSchemaByEnabledKey(enabledKey);
+		return schema != null ? schema.getName() : null;
+	}
+
+	public boolean isPluginEnabled(String enabledKey)
+	{
+		PluginSchema schema = schemaRegistry.getPluginSchemaByEnabledKey(enabledKey);
+		return schema != null && pluginManager.isPluginEnabled(schema.getPlugin());
+	}
+
+	/**
+	 * Reads current values of the settings in a schema, descriptors are not needed.
+	 */
+	private ArrayList<PluginSetting> readSettings(PluginSchema schema)
+	{
+		ArrayList<PluginSetting> pluginSettings = new ArrayList<>(schema.getSettings().size());
+
+		for (SettingSchema settingSchema : schema.getSettings())
+		{
+			String configuration = configManager.getConfiguration(schema.getConfigName(), settingSchema.getKey());
+			pluginSettings.add(new PluginSetting(settingSchema.getName(), settingSchema.getKey(), configuration, null, null));
+		}
+
+		return pluginSettings;
+	}
 }
@@ -26,8 +26,7 @@ package com.pluginpresets;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.pluginpresets.ui.PluginPresetsPluginPanel;
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
@@ -36,9 +35,18 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
@@ -46,6 +54,7 @@ import javax.swing.SwingUtilities;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.GameState;
 import net.runelite.api.events.FocusChanged;
 import net.runelite.api.events.GameStateChanged;
@@ -55,6 +64,7 @@ import net.runelite.client.config.Keybind;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.events.ExternalPluginsChanged;
+import net.runelite.client.events.PluginChanged;
 import net.runelite.client.input.KeyListener;
 import net.runelite.client.input.KeyManager;
 import net.runelite.client.plugins.Plugin;
@@ -64,6 +74,7 @@ import net.runelite.client.ui.NavigationButton;
 import net.runelite.client.util.ImageUtil;
 import net.runelite.client.util.LinkBrowser;
 
+@Slf4j
 @PluginDescriptor(
 	name = "Plugin Presets",
 	description = "Create presets of your plugin configurations.",
@@ -84,6 +95,8 @@ public class PluginPresetsPlugin extends Plugin
 	private static final String ICON_FILE = "panel_icon.png";
 	private static final String CONFIG_GROUP = "pluginpresets";
 	private static final String CONFIG_KEY = "presets";
+	private static final String PACKED_STORE_CONFIG_KEY = "packedStore";
+	private static final long PRESET_STORAGE_SHUTDOWN_SECONDS = 10;
 
 	@Getter
 	private final HashMap<Keybind, PluginPreset> keybinds = new HashMap<>();
@@ -99,14 +112,19 @@ public class PluginPresetsPlugin extends Plugin
 	@Inject
 	private CustomSettingsManager customSettingsManager;
 
+	@Getter
 	@Inject
-	private ClientToolbar clientToolbar;
+	private PresetMatchEngine presetMatchEngine;
 
+	@Getter
 	@Inject
-	private ConfigManager configManager;
+	private SettingSearchIndex settingSearchIndex;
 
 	@Inject
-	private Gson gson;
+	private ClientToolbar clientToolbar;
+
+	@Inject
+	private ConfigManager configManager;
 
 	@Inject
 	private KeyManager keyManager;
@@ -122,6 +140,24 @@ public class PluginPresetsPlugin extends Plugin
 	@Inject
 	private PluginPresetsStorage presetStorage;
 
+	@Inject
+	private PackedPresetStorage packedPresetStorage;
+
+	@Inject
+	private PresetFolderWatcher presetFolderWatcher;
+
+	@Inject
+	private ConfigChangeCoalescer configChangeCoalescer;
+
+	@Inject
+	private PluginConfigSchemaRegistry schemaRegistry;
+
+	/**
+	 * Store of local presets, either preset files or a single packed preset file.
+	 */
+	@Getter
+	private volatile PresetStore presetStore;
+
 	@Getter
 	@Setter
 	private PluginPresetsPresetEditor presetEditor;
@@ -129,7 +165,41 @@ public class PluginPresetsPlugin extends Plugin
 	@Getter
 	private Boolean loggedIn = false; // Used to inform that keybinds don't work in login screen
 
-	private Boolean loadingPreset = false;
+	@Getter
+	private volatile boolean loadingPreset = false;
+
+	/**
+	 * Applies presets one at a time, so that loading never blocks the client or the plugin panel.
+	 */
+	private ExecutorService presetLoadExecutor;
+
+	/**
+	 * Writes preset saves and reads changed presets from the preset folder in order, so that the event dispatch
+	 * thread never waits for other clients to release the preset folder.
+	 */
+	private ExecutorService presetStorageExecutor;
+
+	/**
+	 * Number of saves waiting to be written and whether the written ones all succeeded.
+	 * Only accessed on the event dispatch thread.
+	 */
+	private int pendingPresetSaves;
+	private boolean pendingPresetSavesWritten;
+
+	/**
+	 * Ids of presets waiting to be loaded. A preset that is already waiting is not queued again.
+	 */
+	private final Set<Long> queuedPresetLoads = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Changes of the last successful preset load, used to undo it.
+	 */
+	private volatile PresetTransaction lastPresetLoad;
+
+	/**
+	 * Error from a background preset load, shown once the panel is rebuilt.
+	 */
+	private volatile String presetLoadError;
 
 	@Getter
 	@Setter
@@ -163,15 +233,28 @@ public class PluginPresetsPlugin extends Plugin
 	@Override
 	protected void startUp()
 	{
-		PluginPresetsStorage.createPresetFolder();
+		presetStorage.createPresetFolder();
+		presetStore = isPackedPresetStore() ? packedPresetStorage : presetStorage;
+		presetStore.recoverInterruptedSave();
 		pluginPanel = new PluginPresetsPluginPanel(this);
-
+		presetLoadExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("PresetApplier")
+			.setDaemon(true)
+			.build());
+		presetStorageExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+			.setNameFormat("PresetStorage")
+			.build());
+		pendingPresetSaves = 0;
+		pendingPresetSavesWritten = true;
+		lastPresetLoad = null;
+
+		// Presets are shown before plugin configs of stored presets are read and compared
+		presetMatchEngine.setConfigReader(presetStorage::loadInBackground, configChangeCoalescer::requestRebuild);
 		loadPresets();
-		updateCurrentConfigurations();
 		savePresets();
 		rebuildPluginUi();
 
-		presetStorage.watchFolderChanges();
+		presetFolderWatcher.watchFolderChanges();
 
 		final BufferedImage icon = ImageUtil.loadImageResource(getClass(), ICON_FILE);
 		navigationButton = NavigationButton.builder()
@@ -196,10 +279,33 @@ public class PluginPresetsPlugin extends Plugin
 		pluginPresets.clear();
 		keybinds.clear();
 
-		presetStorage.stopWatcher();
+		presetFolderWatcher.stopWatcher();
+		configChangeCoalescer.stop();
+		// Plugin configs that are still read in the background are not compared
+		presetMatchEngine.rebuild();
+		// A started load is finished or rolled back, so that the client is not left between two presets
+		presetLoadExecutor.shutdown();
+		queuedPresetLoads.clear();
 		clientToolbar.removeNavigation(navigationButton);
 		keyManager.unregisterKeyListener(keybindListener);
-		presetStorage.deletePresetFolderIfEmpty();
+
+		// Saves that are not written yet must not be lost
+		final ExecutorService storageExecutor = presetStorageExecutor;
+		presetStorageExecutor = null;
+		storageExecutor.shutdown();
+		try
+		{
+			if (!storageExecutor.awaitTermination(PRESET_STORAGE_SHUTDOWN_SECONDS, TimeUnit.SECONDS))
+			{
+				log.warn("Preset saves were not written before shutdown");
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		presetStorage.shutDownLoader();
+		presetStore.deletePresetFolderIfEmpty();
 
 		pluginPanel = null;
 		presetEditor = null;
@@ -209,28 +315,43 @@ public class PluginPresetsPlugin extends Plugin
 	@Subscribe
 	public void onExternalPluginsChanged(ExternalPluginsChanged externalPluginsChanged)
 	{
-		updateCurrentConfigurations();
-		SwingUtilities.invokeLater(this::rebuildPluginUi);
+		schemaRegistry.invalidate();
+		configChangeCoalescer.requestUpdate();
+	}
+
+	@Subscribe
+	public void onPluginChanged(PluginChanged pluginChanged)
+	{
+		// Plugin config proxies can change when plugins start or stop
+		schemaRegistry.invalidate();
 	}
 
 	@Subscribe
 	public void onConfigChanged(ConfigChanged configChanged)
 	{
-		if (validConfigChange(configChanged) && !loadingPreset)
+		if (validConfigChange(configChanged))
 		{
-			updateCurrentConfigurations();
-			SwingUtilities.invokeLater(this::rebuildPluginUi);
+			// A burst of changes, e.g. from loading a preset, is patched and rebuilt once
+			configChangeCoalescer.configChanged(configChanged);
 		}
 	}
 
 	public void updateCurrentConfigurations()
+	{
+		readCurrentConfigurations();
+		presetMatchEngine.rebuild();
+	}
+
+	private void readCurrentConfigurations()
 	{
 		currentConfigurations.update();
+		settingSearchIndex.rebuild(currentConfigurations.getPluginConfigs());
 	}
 
 	private boolean validConfigChange(ConfigChanged configChanged)
 	{
-		return !configChanged.getKey().equals("pluginpresetsplugin");
+		// Changes to other profiles don't affect the current configs
+		return configChanged.getProfile() == null && !configChanged.getKey().equals("pluginpresetsplugin");
 	}
 
 	@Subscribe
@@ -271,18 +392,11 @@ public class PluginPresetsPlugin extends Plugin
 		}
 		else
 		{
-			final String json = gson.toJson(syncPresets);
+			final String json = presetStorage.getGson().toJson(syncPresets, PresetTypeAdapters.PRESET_LIST_TYPE);
 			configManager.setConfiguration(CONFIG_GROUP, CONFIG_KEY, json);
 		}
 
 		syncPresets.forEach(preset -> preset.setLocal(false));
-
-		// If all presets are saved to config, do a refresh since...
-		// ...presetStorage folder watcher does not recognize any file change and doesn't refresh presets.
-		if (syncPresets.size() == pluginPresets.size())
-		{
-			refreshPresets();
-		}
 	}
 
 	private void loadConfig(String json)
@@ -292,9 +406,7 @@ public class PluginPresetsPlugin extends Plugin
 			return;
 		}
 
-		final List<PluginPreset> configPresetData = gson.fromJson(json, new TypeToken<ArrayList<PluginPreset>>()
-		{
-		}.getType());
+		final List<PluginPreset> configPresetData = presetStorage.getGson().fromJson(json, PresetTypeAdapters.PRESET_LIST_TYPE);
 
 		configPresetData.forEach(preset -> preset.setLocal(false));
 		pluginPresets.addAll(configPresetData);
@@ -310,7 +422,7 @@ public class PluginPresetsPlugin extends Plugin
 		PluginPreset preset = presetManager.createPluginPreset(presetName);
 		if (!empty)
 		{
-			preset.setPluginConfigs(currentConfigurations.getPluginConfigs());
+			preset.setPluginConfigs(currentConfigurations.copyPluginConfigs());
 		}
 
 		pluginPresets.add(preset);
@@ -319,35 +431,363 @@ public class PluginPresetsPlugin extends Plugin
 	}
 
 	/**
-	 * Saves presets to preset folder and RuneLite config.
-	 * Changes in preset directory or config causes refreshPresets() to run.
+	 * Saves presets to preset folder and RuneLite config and updates presets in memory. Changes are collected right
+	 * away and written to the preset folder in the background.
+	 * Preset folder watcher ignores files written by this client, so saving does not cause a refresh.
 	 */
 	@SneakyThrows
 	public void savePresets()
 	{
-		presetStorage.savePresets(pluginPresets);
+		// Presets with plugin configs in memory may have been edited, the configs are released when saved
+		final List<PluginPreset> changedPresets = pluginPresets.stream()
+			.filter(PluginPreset::isLoaded)
+			.collect(Collectors.toList());
+
+		final PresetSave save = presetStore.prepareSave(pluginPresets);
+		pendingPresetSaves++;
+		runOnPresetStorageThread(save::write, written -> presetSaveWritten(save, Boolean.TRUE.equals(written)));
+
 		updateConfig();
+		updatePresets(changedPresets);
+		rebuildPluginUi();
+	}
+
+	private void presetSaveWritten(final PresetSave save, final boolean written)
+	{
+		pendingPresetSaves--;
+		pendingPresetSavesWritten &= written;
+		if (pendingPresetSaves == 0)
+		{
+			// Released plugin configs are loaded from the preset folder, so every save must be on disk
+			if (pendingPresetSavesWritten)
+			{
+				save.releasePluginConfigs();
+			}
+			pendingPresetSavesWritten = true;
+		}
 	}
 
 	/**
-	 * Clears presets from memory, loads them again and then rebuilds ui.
+	 * Loads presets again in the background, then replaces presets in memory and rebuilds ui.
 	 */
 	public void refreshPresets()
 	{
-		pluginPresets.clear();
-		loadPresets();
+		final PresetStore store = presetStore;
+		runOnPresetStorageThread(store::loadPresets, presets ->
+		{
+			if (presets == null)
+			{
+				return;
+			}
+
+			pluginPresets.clear();
+			pluginPresets.addAll(presets);
+			loadConfig(configManager.getConfiguration(CONFIG_GROUP, CONFIG_KEY));
+			updatePresets(pluginPresets);
+			rebuildPluginUi();
+		});
+	}
+
+	/**
+	 * Reloads changed preset files in the background and updates only the affected presets in memory.
+	 */
+	public void reloadPresetFiles(final Collection<String> fileNames)
+	{
+		final PresetStore store = presetStore;
+		runOnPresetStorageThread(() -> store.reloadPresetFiles(fileNames), update ->
+		{
+			if (update != null && !update.isEmpty())
+			{
+				applyPresetFolderUpdate(update);
+			}
+		});
+	}
+
+	private void applyPresetFolderUpdate(final PresetFolderUpdate update)
+	{
+		pluginPresets.removeIf(preset -> preset.getLocal() && update.getRemovedPresetIds().contains(preset.getId()));
+		for (PluginPreset updatedPreset : update.getUpdatedPresets())
+		{
+			pluginPresets.removeIf(preset -> preset.getLocal() && preset.getId() == updatedPreset.getId());
+			pluginPresets.add(updatedPreset);
+		}
+
+		updatePresets(update.getUpdatedPresets());
 		rebuildPluginUi();
 	}
 
-	@SneakyThrows
+	/**
+	 * Runs preset folder I/O on the preset storage thread and hands its result to the event dispatch thread,
+	 * unless the plugin was shut down in between. The result is null if the task failed.
+	 */
+	private <T> void runOnPresetStorageThread(final Supplier<T> task, final Consumer<T> callback)
+	{
+		final ExecutorService executor = presetStorageExecutor;
+		if (executor == null)
+		{
+			// Plugin was shut down
+			return;
+		}
+
+		executor.execute(() ->
+		{
+			T result = null;
+			try
+			{
+				result = task.get();
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Failed to access preset folder", e);
+			}
+
+			final T taskResult = result;
+			SwingUtilities.invokeLater(() ->
+			{
+				if (executor == presetStorageExecutor)
+				{
+					callback.accept(taskResult);
+				}
+			});
+		});
+	}
+
+	public boolean isPackedPresetStore()
+	{
+		return Boolean.parseBoolean(configManager.getConfiguration(CONFIG_GROUP, PACKED_STORE_CONFIG_KEY));
+	}
+
+	/**
+	 * Moves local presets between preset files and a single packed preset file.
+	 * Presets that are found only in the other store are imported. The store is switched only once every preset is
+	 * written to the other store, then the presets are removed from the previous store, so that presets deleted
+	 * later are not imported again when switching back.
+	 */
+	public void setPackedPresetStore(final boolean packed)
+	{
+		final PresetStore targetStore = packed ? packedPresetStorage : presetStorage;
+		final PresetStore sourceStore = presetStore;
+		if (targetStore == sourceStore)
+		{
+			return;
+		}
+
+		runOnPresetStorageThread(() ->
+		{
+			targetStore.recoverInterruptedSave();
+			return targetStore.loadPresets();
+		}, targetPresets ->
+		{
+			if (targetPresets == null)
+			{
+				presetStoreNotChanged("Presets could not be read from the preset folder, presets were not moved.");
+				return;
+			}
+
+			// Plugin configs of every preset are written to the other store, also configs that are not in memory
+			pluginPresets.forEach(PluginPreset::getPluginConfigs);
+			for (PluginPreset preset : pluginPresets)
+			{
+				if (preset.isUnavailable())
+				{
+					presetStoreNotChanged("Preset " + preset.getName() + " could not be read from the preset folder, presets were not moved.");
+					return;
+				}
+			}
+
+			final List<PluginPreset> movedPresets = movedPresets(pluginPresets, targetPresets);
+			final PresetSave save = targetStore.prepareSave(movedPresets);
+			runOnPresetStorageThread(save::write, written ->
+			{
+				if (!Boolean.TRUE.equals(written))
+				{
+					presetStoreNotChanged("Presets could not be written to the preset folder, presets were not moved.");
+					return;
+				}
+
+				for (PluginPreset preset : movedPresets)
+				{
+					if (pluginPresets.stream().noneMatch(p -> p.getId() == preset.getId()))
+					{
+						pluginPresets.add(preset);
+					}
+				}
+
+				presetStore = targetStore;
+				configManager.setConfiguration(CONFIG_GROUP, PACKED_STORE_CONFIG_KEY, packed);
+
+				final PresetSave removal = sourceStore.prepareSave(Collections.emptyList());
+				runOnPresetStorageThread(removal::write, removed ->
+				{
+					if (!Boolean.TRUE.equals(removed))
+					{
+						renderPanelErrorNotification("Presets were moved, but could not be removed from the previous preset store.");
+					}
+				});
+				savePresets();
+			});
+		});
+	}
+
+	/**
+	 * Presets that are written to the store presets are moved to, presets that are found only in that store are
+	 * imported.
+	 */
+	static List<PluginPreset> movedPresets(final List<PluginPreset> pluginPresets, final List<PluginPreset> targetPresets)
+	{
+		final List<PluginPreset> movedPresets = new ArrayList<>(pluginPresets);
+		for (PluginPreset preset : targetPresets)
+		{
+			if (movedPresets.stream().noneMatch(p -> p.getId() == preset.getId()))
+			{
+				movedPresets.add(preset);
+			}
+		}
+		return movedPresets;
+	}
+
+	private void presetStoreNotChanged(final String error)
+	{
+		rebuildPluginUi();
+		renderPanelErrorNotification(error);
+	}
+
+	/**
+	 * Queues a preset to be loaded in the background. Progress is shown in the plugin panel.
+	 * If a change fails, the changes made by the load are rolled back.
+	 * Plugin configs of the preset are copied on the event dispatch thread, where presets are edited.
+	 */
 	public void loadPreset(final PluginPreset preset)
 	{
+		if (!SwingUtilities.isEventDispatchThread())
+		{
+			SwingUtilities.invokeLater(() -> loadPreset(preset));
+			return;
+		}
+
+		if (presetLoadExecutor.isShutdown())
+		{
+			// Plugin was shut down
+			return;
+		}
+
+		final List<PluginConfig> pluginConfigs = preset.readPluginConfigs().stream()
+			.map(PluginConfig::copy)
+			.collect(Collectors.toList());
+		if (preset.isUnavailable())
+		{
+			renderPanelErrorNotification("Preset " + preset.getName() + " could not be read from the preset folder.");
+			return;
+		}
+
+		if (!queuedPresetLoads.add(preset.getId()))
+		{
+			return;
+		}
+
+		final String presetName = preset.getName();
+		final PluginPresetsPluginPanel panel = pluginPanel;
+		final ExecutorService executor = presetLoadExecutor;
+		executor.execute(() ->
+		{
+			queuedPresetLoads.remove(preset.getId());
+			runPresetLoad(executor, panel, () ->
+			{
+				final PresetTransaction transaction = presetManager.planPresetLoad(presetName, pluginConfigs);
+				final int applied = applyPresetTransaction(panel, transaction);
+				if (applied < transaction.size())
+				{
+					// Don't leave the client between two presets. The failed change is undone too, it can be partly
+					// applied, e.g. a plugin that was turned on but failed to start
+					applyPresetTransaction(panel, transaction.inverse(applied + 1));
+					presetLoadError = "Loading preset " + presetName + " failed, its changes were undone.";
+				}
+				else if (transaction.size() > 0)
+				{
+					lastPresetLoad = transaction;
+				}
+			});
+		});
+	}
+
+	public boolean canUndoPresetLoad()
+	{
+		return lastPresetLoad != null;
+	}
+
+	/**
+	 * Queues restoring the settings and plugin on/off states from before the last preset load.
+	 */
+	public void undoLastPresetLoad()
+	{
+		final PluginPresetsPluginPanel panel = pluginPanel;
+		final ExecutorService executor = presetLoadExecutor;
+		executor.execute(() -> runPresetLoad(executor, panel, () ->
+		{
+			final PresetTransaction transaction = lastPresetLoad;
+			lastPresetLoad = null;
+			if (transaction != null)
+			{
+				final PresetTransaction undo = transaction.inverse(transaction.size());
+				final int applied = applyPresetTransaction(panel, undo);
+				if (applied < undo.size())
+				{
+					presetLoadError = "Undoing preset " + transaction.getPresetName() + " failed.";
+				}
+			}
+		}));
+	}
+
+	private int applyPresetTransaction(final PluginPresetsPluginPanel panel, final PresetTransaction transaction) throws InterruptedException
+	{
+		return presetManager.applyTransaction(transaction, (done, total) ->
+			SwingUtilities.invokeLater(() -> panel.setLoadProgress(transaction.getPresetName(), done, total)));
+	}
+
+	/**
+	 * Runs a queued load, unless the plugin was shut down before the load started.
+	 */
+	private void runPresetLoad(final ExecutorService executor, final PluginPresetsPluginPanel panel, final PresetLoad load)
+	{
+		if (executor.isShutdown())
+		{
+			return;
+		}
+
 		loadingPreset = true;
-		presetManager.loadPreset(preset);
-		loadingPreset = false;
+		try
+		{
+			load.run();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Error when loading preset", e);
+			presetLoadError = "Loading preset failed.";
+		}
+		finally
+		{
+			loadingPreset = false;
+			SwingUtilities.invokeLater(() ->
+			{
+				panel.clearLoadProgress();
 
-		updateCurrentConfigurations();
-		rebuildPluginUi();
+				// Rebuild after the config changes caused by the load have been patched, unless the plugin was shut down
+				if (!executor.isShutdown())
+				{
+					configChangeCoalescer.requestRebuild();
+				}
+			});
+		}
+	}
+
+	@FunctionalInterface
+	private interface PresetLoad
+	{
+		void run() throws InterruptedException;
 	}
 
 	public void deletePreset(final PluginPreset preset)
@@ -357,15 +797,40 @@ public class PluginPresetsPlugin extends Plugin
 	}
 
 	/**
-	 * Loads presets from preset folder and RuneLite config and adds them to plugin memory.
+	 * Loads presets from preset folder and RuneLite config and adds them to plugin memory. The current configurations
+	 * are read once, after custom settings of the presets are known.
 	 */
 	@SneakyThrows
 	public void loadPresets()
 	{
-		pluginPresets.addAll(presetStorage.loadPresets());
+		pluginPresets.addAll(presetStore.loadPresets());
 		loadConfig(configManager.getConfiguration(CONFIG_GROUP, CONFIG_KEY));
-		pluginPresets.sort(Comparator.comparing(PluginPreset::getName)); // Keep presets in order
+		pluginPresets.sort(Comparator.comparing(PluginPreset::getName));
 		customSettingsManager.parseCustomSettings(pluginPresets);
+		updateCurrentConfigurations();
+		cacheKeybinds();
+	}
+
+	/**
+	 * Updates preset order, custom settings, match states and keybinds from presets in memory.
+	 *
+	 * @param changedPresets presets that were added or changed, match states of other presets are kept
+	 */
+	private void updatePresets(final Collection<PluginPreset> changedPresets)
+	{
+		pluginPresets.sort(Comparator.comparing(PluginPreset::getName)); // Keep presets in order
+		final List<CustomSetting> changedCustomSettings = customSettingsManager.parseCustomSettings(pluginPresets);
+		if (!changedCustomSettings.isEmpty())
+		{
+			// Custom settings are part of the current configs, which are read again
+			readCurrentConfigurations();
+		}
+
+		presetMatchEngine.update(pluginPresets, changedPresets);
+		if (!changedCustomSettings.isEmpty())
+		{
+			presetMatchEngine.customSettingsChanged(changedCustomSettings);
+		}
 		cacheKeybinds();
 	}
 
@@ -400,7 +865,6 @@ public class PluginPresetsPlugin extends Plugin
 
 			pluginPresets.add(newPreset);
 			savePresets();
-			refreshPresets();
 		}
 		else
 		{
@@ -410,7 +874,8 @@ public class PluginPresetsPlugin extends Plugin
 
 	public void exportPresetToClipboard(final PluginPreset preset)
 	{
-		final String json = gson.toJson(preset);
+		preset.getPluginConfigs(); // Load plugin configs before they are serialized
+		final String json = presetStorage.getGson().toJson(preset);
 		final StringSelection contents = new StringSelection(json);
 		Toolkit.getDefaultToolkit().getSystemClipboard().setContents(contents, null);
 	}
@@ -423,5 +888,12 @@ public class PluginPresetsPlugin extends Plugin
 	public void rebuildPluginUi()
 	{
 		pluginPanel.rebuild();
+
+		final String error = presetLoadError;
+		if (error != null)
+		{
+			presetLoadError = null;
+			renderPanelErrorNotification(error);
+		}
 	}
 }
@@ -206,8 +206,7 @@ public class PluginPresetsPresetEditor
 		if (config.getSetting(setting) == null)
 		{
 			config.getSettings().add(setting);
-			updateEditedPreset();
-			plugin.refreshPresets(); // Must do refresh to reload custom configs
+			updateEditedPreset(); // Saving reloads custom configs
 		}
 	}
 
@@ -336,6 +335,7 @@ public class PluginPresetsPresetEditor
 				.stream()
 				.filter(c -> c.getName().equals(presetConfig.getName()))
 				.findAny()
+				.map(PluginConfig::copy)
 				.orElse(null);
 
 			removeConfigurationFromEdited(presetConfig, true);
@@ -24,19 +24,23 @@
  */
 package com.pluginpresets;
 
-import com.google.common.reflect.ClassPath;
-import com.google.common.reflect.ClassPath.ClassInfo;
 import com.google.inject.Inject;
-import java.io.IOException;
-import java.util.ArrayList;
+import com.pluginpresets.PresetTransaction.ConfigWrite;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import javax.inject.Singleton;
+import javax.swing.SwingUtilities;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.plugins.Plugin;
-import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.plugins.PluginInstantiationException;
 import net.runelite.client.plugins.PluginManager;
 
@@ -47,33 +51,40 @@ import net.runelite.client.plugins.PluginManager;
 @Singleton
 public class PluginPresetsPresetManager
 {
+	private static final String CORE_PLUGINS_PACKAGE = "net.runelite.client.plugins.";
+
 	private final PluginManager pluginManager;
 	private final ConfigManager configManager;
-	private final List<String> corePlugins;
+
+	/**
+	 * Names of the plugins that come with RuneLite, read when first needed.
+	 */
+	private volatile Set<String> corePlugins;
 
 	@Inject
 	public PluginPresetsPresetManager(PluginManager pluginManager, ConfigManager configManager)
 	{
 		this.pluginManager = pluginManager;
 		this.configManager = configManager;
-		this.corePlugins = getCorePlugins();
 	}
 
 	/**
-	 * Loads settings from given preset.
+	 * Plans loading settings from given preset configs. Only settings and plugin on/off states that differ from the current ones are changed.
+	 * The current values are captured, so that the load can be undone.
+	 *
+	 * @param pluginConfigs copy of the preset's plugin configs, which are not changed while the load is planned
 	 */
-	public void loadPreset(PluginPreset preset)
+	public PresetTransaction planPresetLoad(String presetName, List<PluginConfig> pluginConfigs)
 	{
 		Collection<Plugin> plugins = pluginManager.getPlugins();
+		PresetTransaction transaction = new PresetTransaction(presetName);
 
-		preset.getPluginConfigs().forEach(pluginConfig ->
+		pluginConfigs.forEach(pluginConfig ->
 		{
 			Plugin plugin = findPlugin(pluginConfig.getName(), plugins);
 
 			pluginConfig.getSettings().forEach(setting ->
 			{
-				boolean changedCustomSettings = false;
-
 				// Some values e.g. hidden timers like tzhaar
 				// or color inputs with "Pick a color" option appears as null
 				String value = setting.getValue();
@@ -83,27 +94,113 @@ public class PluginPresetsPresetManager
 					boolean customConfig = customConfigName != null;
 					String groupName = customConfig ? customConfigName : pluginConfig.getConfigName();
 
-					configManager.setConfiguration(groupName, setting.getKey(), value); // Set configuration
-
-					if (customConfig)
+					// Unchanged values would only cause config change events and settings writes
+					String currentValue = configManager.getConfiguration(groupName, setting.getKey());
+					if (value.equals(currentValue))
 					{
-						changedCustomSettings = true;
+						return;
 					}
-				}
 
-				if (changedCustomSettings)
-				{
-					restartPlugin(plugin);
+					transaction.getWrites().add(new ConfigWrite(groupName, setting.getKey(), value, currentValue));
+
+					// Plugins read custom settings on startup, so they are restarted to apply them
+					if (customConfig && plugin != null)
+					{
+						transaction.getRestartPlugins().add(plugin);
+					}
 				}
 			});
 
 			// Set plugin on/off
 			Boolean enabled = pluginConfig.getEnabled();
-			if (plugin != null && enabled != null)
+			if (plugin != null && enabled != null && enabled != pluginManager.isPluginEnabled(plugin))
 			{
-				enablePlugin(plugin, enabled);
+				transaction.getEnablePlugins().put(plugin, enabled);
 			}
 		});
+
+		// Plugins that are turned on or off are started or stopped anyway
+		transaction.getRestartPlugins().removeAll(transaction.getEnablePlugins().keySet());
+
+		return transaction;
+	}
+
+	/**
+	 * Applies the changes of a preset load. All settings are written first, then plugins with changed custom settings
+	 * are restarted once each, and last plugins are turned on or off. Plugins are started and stopped on the
+	 * event dispatch thread, so this should be called from a background thread.
+	 *
+	 * @param progress receives the number of done and total changes after each change
+	 * @return number of applied changes, less than the size of the transaction if a change failed
+	 */
+	public int applyTransaction(PresetTransaction transaction, BiConsumer<Integer, Integer> progress) throws InterruptedException
+	{
+		final int total = transaction.size();
+		int done = 0;
+
+		for (ConfigWrite write : transaction.getWrites())
+		{
+			try
+			{
+				if (write.getValue() == null)
+				{
+					configManager.unsetConfiguration(write.getGroupName(), write.getKey());
+				}
+				else
+				{
+					configManager.setConfiguration(write.getGroupName(), write.getKey(), write.getValue()); // Set configuration
+				}
+			}
+			catch (RuntimeException e)
+			{
+				log.warn(String.format("Failed to set %s.%s. Reason: %s", write.getGroupName(), write.getKey(), e.getMessage()));
+				return done;
+			}
+			progress.accept(++done, total);
+		}
+
+		for (Plugin plugin : transaction.getRestartPlugins())
+		{
+			if (!runOnEventDispatchThread(() -> restartPlugin(plugin)))
+			{
+				return done;
+			}
+			progress.accept(++done, total);
+		}
+
+		for (Map.Entry<Plugin, Boolean> entry : transaction.getEnablePlugins().entrySet())
+		{
+			if (!runOnEventDispatchThread(() -> enablePlugin(entry.getKey(), entry.getValue())))
+			{
+				return done;
+			}
+			progress.accept(++done, total);
+		}
+
+		return done;
+	}
+
+	/**
+	 * Runs one plugin start or stop at a time, so that the client can render between them.
+	 */
+	private boolean runOnEventDispatchThread(BooleanSupplier action) throws InterruptedException
+	{
+		if (SwingUtilities.isEventDispatchThread())
+		{
+			return action.getAsBoolean();
+		}
+
+		final AtomicBoolean result = new AtomicBoolean();
+		try
+		{
+			SwingUtilities.invokeAndWait(() -> result.set(action.getAsBoolean()));
+		}
+		catch (InvocationTargetException e)
+		{
+			log.warn(String.format("Error when loading preset: %s", e.getCause()));
+			return false;
+		}
+		return result.get();
 	}
 
 	private Plugin findPlugin(String plugin, Collection<Plugin> plugins)
@@ -118,20 +215,22 @@ public class PluginPresetsPresetManager
 		return null;
 	}
 
-	private void restartPlugin(Plugin plugin)
+	private boolean restartPlugin(Plugin plugin)
 	{
 		boolean enabled = pluginManager.isPluginEnabled(plugin);
 
-		enablePlugin(plugin, !enabled, true);
-		enablePlugin(plugin, enabled, true);
+		return enablePlugin(plugin, !enabled, true) && enablePlugin(plugin, enabled, true);
 	}
 
-	private void enablePlugin(Plugin plugin, boolean enabled)
+	private boolean enablePlugin(Plugin plugin, boolean enabled)
 	{
-		enablePlugin(plugin, enabled, false);
+		return enablePlugin(plugin, enabled, false);
 	}
 
-	private void enablePlugin(Plugin plugin, boolean enabled, boolean skipSetEnable)
+	/**
+	 * @return false if starting or stopping the plugin failed
+	 */
+	private boolean enablePlugin(Plugin plugin, boolean enabled, boolean skipSetEnable)
 	{
 		if (!skipSetEnable)
 		{
@@ -152,7 +251,9 @@ public class PluginPresetsPresetManager
 		catch (PluginInstantiationException ex)
 		{
 			log.warn("Error when {} plugin {}", enabled ? "starting" : "stopping", plugin.getClass().getSimpleName(), ex);
+			return false;
 		}
+		return true;
 	}
 
 	public PluginPreset createPluginPreset(String presetName)
@@ -166,7 +267,7 @@ public class PluginPresetsPresetManager
 		{
 			return false;
 		}
-		return !corePlugins.contains(pluginName);
+		return !getCorePlugins().contains(pluginName);
 	}
 
 	public boolean isExternalPluginInstalled(String pluginName)
@@ -181,30 +282,36 @@ public class PluginPresetsPresetManager
 		return configManager.getConfiguration(groupName, key);
 	}
 
-	private List<String> getCorePlugins()
+	private Set<String> getCorePlugins()
 	{
-		ArrayList<String> pluginNames = new ArrayList<>();
-		try
+		Set<String> plugins = corePlugins;
+		if (plugins == null)
 		{
-			ClassPath classPath = ClassPath.from(pluginManager.getClass().getClassLoader());
-			List<Class<?>> plugins = classPath.getTopLevelClassesRecursive("net.runelite.client.plugins").stream()
-				.map(ClassInfo::load)
-				.collect(Collectors.toList());
+			plugins = readCorePlugins();
+			corePlugins = plugins;
+		}
+		return plugins;
+	}
 
-			for (Class<?> clazz : plugins)
-			{
-				PluginDescriptor pluginDescriptor = clazz.getAnnotation(PluginDescriptor.class);
-				if (pluginDescriptor != null)
-				{
-					pluginNames.add(pluginDescriptor.name());
-				}
-			}
+	/**
+	 * Core plugins are loaded by the client class loader from the RuneLite plugins package, plugin hub plugins
+	 * by their own class loaders. Core plugins are loaded even when they are turned off, so the loaded
+	 * plugins are enough to tell them apart.
+	 */
+	private Set<String> readCorePlugins()
+	{
+		ClassLoader clientClassLoader = pluginManager.getClass().getClassLoader();
+		Set<String> pluginNames = new HashSet<>();
 
-		}
-		catch (IOException e)
+		for (Plugin plugin : pluginManager.getPlugins())
 		{
-			log.error("Error getting core plugins", e);
+			Class<?> clazz = plugin.getClass();
+			if (clazz.getClassLoader() == clientClassLoader && clazz.getName().startsWith(CORE_PLUGINS_PACKAGE))
+			{
+				pluginNames.add(plugin.getName());
+			}
 		}
+
 		return pluginNames;
 	}
 }
@@ -24,107 +24,343 @@
  */
 package com.pluginpresets;
 
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardWatchEventKinds;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import javax.swing.SwingUtilities;
-import lombok.SneakyThrows;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Default preset store, which keeps every local preset in its own JSON file in the preset folder.
+ */
 @Slf4j
-public class PluginPresetsStorage
+@Singleton
+public class PluginPresetsStorage implements PresetStore
 {
-	private static final File PRESETS_DIR = PluginPresetsPlugin.PRESETS_DIR;
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final String INDEX_FILE_NAME = ".index";
+	private static final Type INDEX_TYPE = new TypeToken<List<PresetFile>>()
+	{
+	}.getType();
+	private static final int LOADER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Files of local presets by preset id, as they were last written or read by this client, including files of saves
+	 * that are not written yet. Stored to the preset index file.
+	 * Changed while holding the store monitor, which is taken after the folder lock.
+	 */
+	private final Map<Long, PresetFile> presetFiles = new ConcurrentHashMap<>();
+
+	/**
+	 * Saves that were prepared but are not written yet, files in them are overwritten by this client.
+	 * Only accessed while holding the store monitor.
+	 */
+	private final List<PresetFileSave> unwrittenSaves = new ArrayList<>();
+
+	/**
+	 * Files of duplicate presets that are removed on next save.
+	 */
+	private final List<File> staleFiles = new ArrayList<>();
 
-	private final List<String> failedFileNames = new ArrayList<>();
 	private final PluginPresetsPlugin plugin;
+	private final PresetJournal journal;
+	private final PresetFolderLock folderLock;
+	private final File folder;
+	private final File indexFile;
 
-	@Inject
-	private Gson gson;
-	
-	private Thread thread;
-	private WatchService watcher;
+	/**
+	 * Gson with preset type adapters, used for everything stored by the plugin.
+	 */
+	@Getter
+	private final Gson gson;
+
+	/**
+	 * Threads that parse preset files and read plugin configs of presets that are not in memory. Guarded by its own
+	 * lock, the event dispatch thread must not wait for the store monitor that is held while presets are loaded.
+	 */
+	private ExecutorService loaderExecutor;
+	private final Object loaderExecutorLock = new Object();
 
 	/**
-	 * Informs that preset folder edits were made from this client, and they should be refreshed first.
+	 * Files written or deleted by this client by file name, used to ignore watcher events caused by own saves.
 	 */
-	private boolean localClientChange = false;
-	private long lastRefreshTime;
+	private final Map<String, WrittenFile> writtenFiles = new ConcurrentHashMap<>();
 
 	@Inject
-	public PluginPresetsStorage(PluginPresetsPlugin plugin)
+	public PluginPresetsStorage(PluginPresetsPlugin plugin, PresetJournal journal, PresetFolderLock folderLock, Gson gson)
+	{
+		this(plugin, journal, folderLock, gson, PluginPresetsPlugin.PRESETS_DIR);
+	}
+
+	PluginPresetsStorage(PluginPresetsPlugin plugin, PresetJournal journal, PresetFolderLock folderLock, Gson gson, File folder)
 	{
 		this.plugin = plugin;
+		this.gson = PresetTypeAdapters.register(gson);
+		this.journal = journal;
+		this.folderLock = folderLock;
+		this.folder = folder;
+		this.indexFile = new File(folder, INDEX_FILE_NAME);
 	}
 
-	private static File createNewPresetFileWithCustomSuffix(final PluginPreset pluginPreset, final int fileNumber)
+	private File createNewPresetFileWithCustomSuffix(final PluginPreset pluginPreset, final int fileNumber)
 	{
-		return new File(PRESETS_DIR, String.format("%s (%d).json", pluginPreset.getName(), fileNumber));
+		return new File(folder, String.format("%s (%d).json", pluginPreset.getName(), fileNumber));
 	}
 
-	public static void createPresetFolder()
+	public void createPresetFolder()
 	{
-		final boolean presetFolderWasCreated = PRESETS_DIR.mkdirs();
+		final boolean presetFolderWasCreated = folder.mkdirs();
 
 		if (presetFolderWasCreated)
 		{
-			log.info(String.format("Preset folder created at %s", PRESETS_DIR.getAbsolutePath()));
+			log.info(String.format("Preset folder created at %s", folder.getAbsolutePath()));
 		}
 	}
 
+	/**
+	 * Deletes the preset folder when it has no presets. A journal with changes that were not yet replayed, e.g. after
+	 * another client crashed, is kept together with the folder.
+	 */
+	@Override
 	public void deletePresetFolderIfEmpty()
 	{
-		if (PRESETS_DIR.exists() && Objects.requireNonNull(PRESETS_DIR.listFiles()).length > 0)
+		folderLock.lock();
+		try
+		{
+			if (!folder.exists() || Objects.requireNonNull(folder.listFiles(PluginPresetsStorage::isPresetFile)).length > 0)
+			{
+				return;
+			}
+
+			try
+			{
+				if (!journal.readCommitted().isEmpty())
+				{
+					return;
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("Could not read preset journal", e);
+				return;
+			}
+
+			journal.delete();
+			if (indexFile.exists())
+			{
+				deleteFile(indexFile);
+			}
+			deletePresetFolder();
+		}
+		finally
 		{
-			return;
+			folderLock.unlock();
 		}
+	}
+
+	/**
+	 * Checks whether file is a preset file and not e.g. the journal or a temporary file, which are hidden files.
+	 */
+	private static boolean isPresetFile(final File file)
+	{
+		return isPresetFileName(file.getName());
+	}
 
-		deletePresetFolder();
+	private static boolean isPresetFileName(final String fileName)
+	{
+		return !fileName.startsWith(".");
+	}
+
+	@Override
+	public boolean isStoreFile(final String fileName)
+	{
+		return isPresetFileName(fileName);
 	}
 
 	private void deletePresetFolder()
 	{
-		boolean folderDeleted = PRESETS_DIR.delete();
+		boolean folderDeleted = folder.delete();
 
 		if (!folderDeleted)
 		{
-			log.warn(String.format("Could not delete %s", PRESETS_DIR.getName()));
+			log.warn(String.format("Could not delete %s", folder.getName()));
 		}
 	}
 
-	public void savePresets(final List<PluginPreset> pluginPresets)
+	/**
+	 * Collects changes of local presets to the preset folder. Only presets that changed since they were last written
+	 * or read are written, renamed or deleted, other preset files are left untouched.
+	 */
+	@Override
+	public synchronized PresetSave prepareSave(final List<PluginPreset> pluginPresets)
 	{
-		localClientChange = true;
-		clearPresetFolder();
-		pluginPresets.forEach(this::storePluginPresetToJsonFile);
+		final PresetFileSave save = new PresetFileSave(new PresetChanges(pluginPresets, presetFiles::get, this::toJson));
+
+		staleFiles.forEach(file -> save.changes.add(new PresetFileChange(file.getName(), null)));
+		staleFiles.clear();
+
+		// Delete files of presets that were removed or moved to config
+		Iterator<Map.Entry<Long, PresetFile>> presetFileIterator = presetFiles.entrySet().iterator();
+		while (presetFileIterator.hasNext())
+		{
+			Map.Entry<Long, PresetFile> entry = presetFileIterator.next();
+			if (!save.presetChanges.isLocal(entry.getKey()))
+			{
+				save.changes.add(new PresetFileChange(entry.getValue().getFileName(), null));
+				presetFileIterator.remove();
+			}
+		}
+
+		save.presetChanges.getChangedPresets().forEach((pluginPreset, json) -> storePluginPresetToJsonFile(pluginPreset, json, save));
+		if (!save.changes.isEmpty())
+		{
+			unwrittenSaves.add(save);
+		}
+		return save;
 	}
 
-	private void clearPresetFolder()
+	/**
+	 * Lets plugin configs of a saved preset be dropped from memory, they are loaded again from the preset file.
+	 */
+	private void releasePluginConfigs(final PluginPreset pluginPreset)
+	{
+		final long id = pluginPreset.getId();
+		pluginPreset.setPluginConfigsLoader(() -> loadPluginConfigs(id));
+		pluginPreset.releasePluginConfigs();
+	}
+
+	/**
+	 * Replays preset saves that were committed to the journal but interrupted before they were fully applied,
+	 * and removes temporary files left behind by them.
+	 */
+	@Override
+	public void recoverInterruptedSave()
 	{
-		for (File file : Objects.requireNonNull(PRESETS_DIR.listFiles()))
+		folderLock.lock();
+		try
 		{
-			// Don't delete invalid files,
-			// those could be e.g. v1 style presets or some syntax failed presets
-			if (!failedFileNames.contains(file.getName()))
+			try
+			{
+				final List<PresetFileChange> changes = journal.readCommitted();
+				if (!changes.isEmpty())
+				{
+					log.info(String.format("Replaying %d interrupted preset file changes", changes.size()));
+					applyChanges(changes);
+				}
+				else
+				{
+					journal.clear();
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("Could not read preset journal", e);
+			}
+
+			for (File file : Objects.requireNonNull(folder.listFiles(file -> isTempFileName(file.getName()))))
 			{
 				deleteFile(file);
 			}
 		}
+		finally
+		{
+			folderLock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether file is a temporary file written by this plugin, other files in the folder are left alone.
+	 */
+	private static boolean isTempFileName(final String fileName)
+	{
+		return fileName.startsWith(".") && fileName.endsWith(TEMP_FILE_SUFFIX);
+	}
+
+	/**
+	 * Applies changes to the preset folder. The journal is cleared only when every change succeeded and has been
+	 * synced to disk, otherwise the changes get replayed on next start up.
+	 */
+	private boolean applyChanges(final List<PresetFileChange> changes)
+	{
+		boolean applied = true;
+		for (PresetFileChange change : changes)
+		{
+			final File file = new File(folder, change.getFileName());
+			try
+			{
+				if (change.isDelete())
+				{
+					Files.deleteIfExists(file.toPath());
+					writtenFiles.put(change.getFileName(), new WrittenFile(null, 0, 0, 0));
+				}
+				else
+				{
+					writePresetDataToJsonFile(change.getJson(), file);
+					writtenFiles.put(change.getFileName(), new WrittenFile(hash(change.getJson()), file.lastModified(), file.length(), System.currentTimeMillis()));
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn(String.format("Could not %s %s, it will be retried on next start up",
+					change.isDelete() ? "delete" : "write", file.getName()), e);
+				applied = false;
+			}
+		}
+
+		if (!applied)
+		{
+			return false;
+		}
+
+		// Moved and deleted files must be on disk before the journal that would replay them is gone
+		PluginPresetsUtils.syncDirectory(folder);
+
+		try
+		{
+			journal.clear();
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not clear preset journal", e);
+		}
+		return true;
 	}
 
 	private void deleteFile(File file)
@@ -136,34 +372,85 @@ public class PluginPresetsStorage
 		}
 	}
 
-	@SneakyThrows
-	private void storePluginPresetToJsonFile(final PluginPreset pluginPreset)
+	/**
+	 * Adds preset file changes of a preset that changed since it was last written or read.
+	 */
+	private void storePluginPresetToJsonFile(final PluginPreset pluginPreset, final String json, final PresetFileSave save)
 	{
-		// Only store local presets
-		if (!pluginPreset.getLocal())
+		final PresetFile presetFile = presetFiles.get(pluginPreset.getId());
+		final String hash = save.presetChanges.getHash(pluginPreset);
+
+		File presetJsonFile;
+		if (presetFile != null && isPresetJsonFileOf(getFile(presetFile), pluginPreset))
 		{
-			return;
+			presetJsonFile = getFile(presetFile);
 		}
+		else
+		{
+			presetJsonFile = getPresetJsonFileFrom(pluginPreset);
 
-		File presetJsonFile = getPresetJsonFileFrom(pluginPreset);
+			if (fileNameTaken(presetJsonFile))
+			{
+				presetJsonFile = giveJsonFileCustomSuffixNumber(pluginPreset, presetJsonFile);
+			}
+		}
 
-		if (presetJsonFile.exists())
+		save.changes.add(new PresetFileChange(presetJsonFile.getName(), json));
+
+		if (presetFile != null)
 		{
-			presetJsonFile = giveJsonFileCustomSuffixNumber(pluginPreset, presetJsonFile);
+			save.overwrittenPresetFiles.add(presetFile);
+
+			// Preset was renamed, remove the file with the old name
+			if (!getFile(presetFile).equals(presetJsonFile))
+			{
+				save.changes.add(new PresetFileChange(presetFile.getFileName(), null));
+			}
 		}
 
-		writePresetDataToJsonFile(pluginPreset, presetJsonFile);
+		final PresetFile writtenPresetFile = PresetFile.of(presetJsonFile, pluginPreset, hash);
+		presetFiles.put(pluginPreset.getId(), writtenPresetFile);
+		save.writtenPresetFiles.add(writtenPresetFile);
+	}
+
+	/**
+	 * Checks whether file exists or is used by a preset of a save that is not written yet.
+	 */
+	private boolean fileNameTaken(final File file)
+	{
+		return file.exists() || presetFiles.values().stream().anyMatch(presetFile -> presetFile.getFileName().equals(file.getName()));
+	}
+
+	private File getFile(final PresetFile presetFile)
+	{
+		return new File(folder, presetFile.getFileName());
 	}
 
 	private File getPresetJsonFileFrom(final PluginPreset pluginPreset)
 	{
-		return new File(PRESETS_DIR, String.format("%s.json", pluginPreset.getName()));
+		return new File(folder, String.format("%s.json", pluginPreset.getName()));
+	}
+
+	/**
+	 * Checks whether file is named after the preset, e.g. "Preset.json" or "Preset (1).json".
+	 */
+	private boolean isPresetJsonFileOf(final File file, final PluginPreset pluginPreset)
+	{
+		final String fileName = file.getName();
+		final String presetName = pluginPreset.getName();
+
+		if (fileName.equals(String.format("%s.json", presetName)))
+		{
+			return true;
+		}
+
+		return fileName.startsWith(presetName + " (") && fileName.substring(presetName.length()).matches(" \\(\\d+\\)\\.json");
 	}
 
 	private File giveJsonFileCustomSuffixNumber(final PluginPreset pluginPreset, File presetJsonFile)
 	{
 		int fileNumber = 1;
-		while (presetJsonFile.exists())
+		while (fileNameTaken(presetJsonFile))
 		{
 			presetJsonFile = createNewPresetFileWithCustomSuffix(pluginPreset, fileNumber);
 			fileNumber++;
@@ -171,105 +458,441 @@ public class PluginPresetsStorage
 		return presetJsonFile;
 	}
 
-	private void writePresetDataToJsonFile(final PluginPreset pluginPreset, final File presetJsonFile)
+	String toJson(final PluginPreset pluginPreset)
 	{
+		pluginPreset.getPluginConfigs(); // Load plugin configs before they are serialized
+
+		final Boolean local = pluginPreset.getLocal();
 		pluginPreset.setLocal(null); // Don't store status value to file
 
-		try (Writer writer = new FileWriter(presetJsonFile))
-		{
-			gson.toJson(pluginPreset, writer);
-		}
-		catch (Exception e)
+		try
 		{
-			// Ignore
+			return gson.toJson(pluginPreset);
 		}
 		finally
 		{
-			pluginPreset.setLocal(true);
+			pluginPreset.setLocal(local);
 		}
+	}
 
+	static String hash(final String json)
+	{
+		return Hashing.sha256().hashString(json, StandardCharsets.UTF_8).toString();
 	}
 
-	public List<PluginPreset> loadPresets() throws IOException
+	/**
+	 * Writes file atomically by writing and syncing a temporary file first and then moving it over the file,
+	 * so that the file is never left partially written.
+	 */
+	private void writePresetDataToJsonFile(final String json, final File presetJsonFile) throws IOException
 	{
-		failedFileNames.clear();
+		writePresetDataToJsonFile(presetJsonFile, Charset.defaultCharset(), writer -> writer.write(json));
+	}
 
-		ArrayList<Long> loadedIds = new ArrayList<>();
-		List<PluginPreset> pluginPresetsFromFolder = new ArrayList<>();
+	/**
+	 * Streams json to the file through a buffered writer, see {@link #writePresetDataToJsonFile(String, File)}.
+	 */
+	private void writePresetDataToJsonFile(final File presetJsonFile, final Charset charset, final JsonFileWriter jsonFileWriter) throws IOException
+	{
+		final Path target = presetJsonFile.toPath();
+		final Path temp = new File(folder, "." + presetJsonFile.getName() + TEMP_FILE_SUFFIX).toPath();
 
-		for (File file : Objects.requireNonNull(PRESETS_DIR.listFiles()))
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
 		{
-			if (file.isFile())
+			final Writer writer = new BufferedWriter(Channels.newWriter(channel, charset.newEncoder(), -1));
+			jsonFileWriter.write(writer);
+			writer.flush();
+
+			// Contents must be on disk before the move, or a crash can leave an empty file in place of the old one
+			channel.force(true);
+		}
+
+		try
+		{
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Loads presets from the preset folder. Files that are unchanged since they were indexed are not parsed,
+	 * their presets are created from the preset index and load their plugin configs on first access.
+	 * Other files are parsed concurrently. Presets are merged in file name order,
+	 * if multiple files contain a preset with the same id, the first one is loaded.
+	 */
+	@Override
+	public List<PluginPreset> loadPresets()
+	{
+		folderLock.lock();
+		try
+		{
+			synchronized (this)
 			{
-				PluginPreset pluginPreset = parsePluginPresetFrom(file);
+				final Map<String, PresetFile> index = readIndex();
+
+				presetFiles.clear();
+				staleFiles.clear();
 
-				if (pluginPreset != null)
+				final File[] files = Objects.requireNonNull(folder.listFiles(file -> file.isFile() && isPresetFile(file)));
+				Arrays.sort(files, Comparator.comparing(File::getName));
+
+				final Map<File, Future<ParsedPresetFile>> parsedFiles = new HashMap<>();
+				final long observedAt = System.currentTimeMillis();
+				boolean revalidated = false;
+				for (File file : files)
+				{
+					PresetFile indexed = index.get(file.getName());
+					if (indexed == null || !indexed.isUpToDate(file))
+					{
+						parsedFiles.put(file, getLoaderExecutor().submit(() -> parsePresetFile(file)));
+					}
+					else if (PresetFile.isRacy(indexed.getLastModified(), indexed.getObservedAt()))
+					{
+						// Contents were compared, so the file is known unchanged as of now
+						indexed.setObservedAt(observedAt);
+						revalidated = true;
+					}
+				}
+
+				List<PluginPreset> pluginPresetsFromFolder = new ArrayList<>();
+
+				for (File file : files)
 				{
+					PluginPreset pluginPreset;
+					PresetFile presetFile;
+
+					final Future<ParsedPresetFile> future = parsedFiles.get(file);
+					if (future == null)
+					{
+						presetFile = index.get(file.getName());
+						pluginPreset = presetFile.toPreset();
+						final long id = presetFile.getId();
+						pluginPreset.setPluginConfigsLoader(() -> loadPluginConfigs(id));
+					}
+					else
+					{
+						ParsedPresetFile parsedFile;
+						try
+						{
+							parsedFile = future.get();
+						}
+						catch (InterruptedException e)
+						{
+							Thread.currentThread().interrupt();
+							break;
+						}
+						catch (ExecutionException e)
+						{
+							log.warn("Failed to load preset", e.getCause());
+							continue;
+						}
+
+						// Conversion reads current configurations, so it is done here instead of the loader threads
+						pluginPreset = toPluginPreset(parsedFile);
+						if (pluginPreset == null)
+						{
+							continue;
+						}
+
+						presetFile = toPresetFile(parsedFile, pluginPreset);
+					}
+
 					long id = pluginPreset.getId();
-					if (!(loadedIds.contains(id)))
+					if (!(presetFiles.containsKey(id)))
 					{
 						pluginPreset.setLocal(true);
 						pluginPresetsFromFolder.add(pluginPreset);
-						loadedIds.add(id);
+						presetFiles.put(id, presetFile);
+					}
+					else
+					{
+						// Duplicate of an already loaded preset
+						staleFiles.add(file);
 					}
 				}
-				else
+
+				final Map<String, PresetFile> loadedIndex = presetFiles.values().stream()
+					.collect(Collectors.toMap(PresetFile::getFileName, Function.identity()));
+				if (revalidated || !loadedIndex.equals(index))
 				{
-					failedFileNames.add(file.getName());
+					writeIndex();
 				}
+
+				return pluginPresetsFromFolder;
 			}
 		}
+		finally
+		{
+			folderLock.unlock();
+		}
+	}
+
+	/**
+	 * Reloads changed files of the preset folder. Presets that are already loaded from another file keep their file,
+	 * the changed file is then treated as a duplicate.
+	 *
+	 * @param fileNames Names of created, modified or deleted files in the preset folder
+	 * @return Presets that were removed, added or changed
+	 */
+	@Override
+	public PresetFolderUpdate reloadPresetFiles(final Collection<String> fileNames)
+	{
+		folderLock.lock();
+		try
+		{
+			synchronized (this)
+			{
+				final PresetFolderUpdate update = new PresetFolderUpdate();
+
+				for (String fileName : new TreeSet<>(fileNames))
+				{
+					if (unwrittenSaves.stream().anyMatch(save -> save.changes.stream().anyMatch(change -> change.getFileName().equals(fileName))))
+					{
+						// Last writer wins, the file is overwritten once the save of this client is written
+						continue;
+					}
+
+					final File file = new File(folder, fileName);
+					final PresetFile previousPresetFile = findPresetFile(fileName);
 
-		return pluginPresetsFromFolder;
+					PluginPreset pluginPreset = null;
+					ParsedPresetFile parsedFile = null;
+					if (file.isFile())
+					{
+						try
+						{
+							parsedFile = parsePresetFile(file);
+							pluginPreset = toPluginPreset(parsedFile);
+						}
+						catch (IOException e)
+						{
+							log.warn(String.format("Failed to reload preset from %s", file.getAbsolutePath()), e);
+							continue;
+						}
+					}
+
+					if (previousPresetFile != null && (pluginPreset == null || previousPresetFile.getId() != pluginPreset.getId()))
+					{
+						// File was deleted or no longer contains the preset
+						presetFiles.remove(previousPresetFile.getId());
+						update.getRemovedPresetIds().add(previousPresetFile.getId());
+					}
+
+					if (pluginPreset == null)
+					{
+						staleFiles.remove(file);
+						continue;
+					}
+
+					final long id = pluginPreset.getId();
+					final PresetFile loadedPresetFile = presetFiles.get(id);
+					if (loadedPresetFile != null && !loadedPresetFile.getFileName().equals(fileName) && getFile(loadedPresetFile).isFile())
+					{
+						// Duplicate of an already loaded preset
+						staleFiles.add(file);
+						continue;
+					}
+
+					pluginPreset.setLocal(true);
+					presetFiles.put(id, toPresetFile(parsedFile, pluginPreset));
+					update.getRemovedPresetIds().remove(id);
+					update.getUpdatedPresets().add(pluginPreset);
+				}
+
+				if (!update.isEmpty())
+				{
+					writeIndex();
+				}
+
+				return update;
+			}
+		}
+		finally
+		{
+			folderLock.unlock();
+		}
 	}
 
-	private PluginPreset parsePluginPresetFrom(final File file) throws IOException
+	private PresetFile findPresetFile(final String fileName)
 	{
-		PluginPreset newPreset;
+		return presetFiles.values().stream()
+			.filter(presetFile -> presetFile.getFileName().equals(fileName))
+			.findFirst()
+			.orElse(null);
+	}
 
-		try (Reader reader = new FileReader(file))
+	/**
+	 * Returns preset of parsed file, legacy presets are converted to current format.
+	 */
+	private PluginPreset toPluginPreset(final ParsedPresetFile parsedFile)
+	{
+		if (parsedFile.legacyPreset != null)
 		{
-			newPreset = gson.fromJson(reader, new TypeToken<PluginPreset>()
+			log.info(String.format("Converting legacy styled preset to new plugin preset format, file: %s, preset: %s", parsedFile.file.getAbsolutePath(), parsedFile.legacyPreset));
+			return LegacyPluginPreset.convert(parsedFile.legacyPreset, plugin.getCurrentConfigurations());
+		}
+
+		return parsedFile.preset;
+	}
+
+	private PresetFile toPresetFile(final ParsedPresetFile parsedFile, final PluginPreset pluginPreset)
+	{
+		// Files that are not in the current format, e.g. legacy presets, get a differing hash and are rewritten on next save
+		final PresetFile presetFile = PresetFile.of(parsedFile.file.getName(), parsedFile.state.lastModified, parsedFile.state.size,
+			parsedFile.state.observedAt, pluginPreset, parsedFile.hash);
+
+		if (parsedFile.legacyPreset != null)
+		{
+			// Never treat legacy files as up to date in the index, they are converted until rewritten
+			presetFile.setLastModified(-1);
+		}
+
+		return presetFile;
+	}
+
+	/**
+	 * Loads plugin configs of a preset that was created from the preset index.
+	 *
+	 * @return plugin configs, or null if they could not be read
+	 */
+	private List<PluginConfig> loadPluginConfigs(final long id)
+	{
+		final PresetFile presetFile = presetFiles.get(id);
+		if (presetFile != null)
+		{
+			try
 			{
-			}.getType());
+				final PluginPreset pluginPreset = parsePresetFile(getFile(presetFile)).preset;
+				if (pluginPreset != null && pluginPreset.getId() == id)
+				{
+					return pluginPreset.getPluginConfigs();
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn(String.format("Failed to load preset configurations from %s", presetFile.getFileName()), e);
+			}
 		}
-		catch (JsonSyntaxException | FileNotFoundException e)
+
+		log.warn(String.format("Could not find configurations of preset %d, it is kept unchanged", id));
+		return null;
+	}
+
+	private Map<String, PresetFile> readIndex()
+	{
+		final Map<String, PresetFile> index = new HashMap<>();
+		if (!indexFile.exists())
 		{
-			log.warn(String.format("Failed to load preset from %s, %s", file.getAbsolutePath(), e.getMessage()));
-			return null;
+			return index;
 		}
 
-		if (newPreset.getName() == null || newPreset.getPluginConfigs() == null)
+		try
 		{
-			// Something wrong with the parsed preset
-			// Check if file contains old styled preset
-			LegacyPluginPreset legacyPluginPreset = null;
+			final List<PresetFile> indexedFiles;
+			try (Reader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8))
+			{
+				indexedFiles = gson.fromJson(reader, INDEX_TYPE);
+			}
 
-			try (Reader reader = new FileReader(file))
+			if (indexedFiles != null)
 			{
-				legacyPluginPreset = gson.fromJson(reader, new TypeToken<LegacyPluginPreset>()
-				{
-				}.getType());
+				indexedFiles.forEach(presetFile -> index.put(presetFile.getFileName(), presetFile));
 			}
-			catch (JsonSyntaxException e)
+		}
+		catch (IOException | JsonParseException e)
+		{
+			log.warn("Could not read preset index, all presets are loaded from their files", e);
+		}
+
+		return index;
+	}
+
+	private void writeIndex()
+	{
+		try
+		{
+			final List<PresetFile> indexedFiles = new ArrayList<>(presetFiles.values());
+			writePresetDataToJsonFile(indexFile, StandardCharsets.UTF_8, writer -> gson.toJson(indexedFiles, INDEX_TYPE, writer));
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not write preset index", e);
+		}
+	}
+
+	private ExecutorService getLoaderExecutor()
+	{
+		synchronized (loaderExecutorLock)
+		{
+			if (loaderExecutor == null)
 			{
-				// Ignore
+				loaderExecutor = Executors.newFixedThreadPool(LOADER_THREADS, new ThreadFactoryBuilder()
+					.setNameFormat("PresetLoader-%d")
+					.setDaemon(true)
+					.build());
 			}
+			return loaderExecutor;
+		}
+	}
 
-			if (legacyPluginPreset != null)
+	/**
+	 * Runs a task on the preset loader threads, e.g. to read plugin configs of a preset without blocking the event
+	 * dispatch thread.
+	 */
+	public void loadInBackground(final Runnable task)
+	{
+		getLoaderExecutor().execute(task);
+	}
+
+	public void shutDownLoader()
+	{
+		synchronized (loaderExecutorLock)
+		{
+			if (loaderExecutor != null)
 			{
-				log.info(String.format("Converting legacy styled preset to new plugin preset format, file: %s, preset: %s", file.getAbsolutePath(), legacyPluginPreset));
-				newPreset = LegacyPluginPreset.convert(legacyPluginPreset, plugin.getCurrentConfigurations());
-				return newPreset;
+				loaderExecutor.shutdownNow();
+				loaderExecutor = null;
 			}
-			else
+		}
+	}
+
+	/**
+	 * Reads and parses a preset file once, detecting whether it contains a current or a legacy styled preset.
+	 */
+	private ParsedPresetFile parsePresetFile(final File file) throws IOException
+	{
+		// Taken before reading, so that changes made while the file is read are noticed later
+		final FileState state = new FileState(System.currentTimeMillis(), file.lastModified(), file.length());
+		final String json = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+		final String hash = hash(json);
+
+		try
+		{
+			final PluginPreset pluginPreset = gson.fromJson(json, PluginPreset.class);
+			if (pluginPreset != null && pluginPreset.getName() != null && pluginPreset.readPluginConfigs() != null)
 			{
-				log.warn(String.format("Plugin Preset data is malformed in file and could not be loaded %s, %s", file.getAbsolutePath(), newPreset));
+				return new ParsedPresetFile(file, state, hash, pluginPreset, null);
 			}
-			return null;
+
+			// Something wrong with the parsed preset
+			// Check if file contains old styled preset
+			final LegacyPluginPreset legacyPreset = gson.fromJson(json, LegacyPluginPreset.class);
+			if (legacyPreset != null && legacyPreset.getEnabledPlugins() != null && legacyPreset.getPluginSettings() != null)
+			{
+				return new ParsedPresetFile(file, state, hash, null, legacyPreset);
+			}
+		}
+		catch (JsonParseException e)
+		{
+			log.warn(String.format("Failed to load preset from %s, %s", file.getAbsolutePath(), e.getMessage()));
+			return new ParsedPresetFile(file, state, hash, null, null);
 		}
 
-		return newPreset;
+		log.warn(String.format("Plugin Preset data is malformed in file and could not be loaded %s", file.getAbsolutePath()));
+		return new ParsedPresetFile(file, state, hash, null, null);
 	}
 
 	public PluginPreset parsePluginPresetFrom(String string)
@@ -278,11 +901,9 @@ public class PluginPresetsStorage
 
 		try
 		{
-			newPreset = gson.fromJson(string, new TypeToken<PluginPreset>()
-			{
-			}.getType());
+			newPreset = gson.fromJson(string, PluginPreset.class);
 		}
-		catch (JsonSyntaxException e)
+		catch (JsonParseException e)
 		{
 			return null;
 		}
@@ -296,97 +917,174 @@ public class PluginPresetsStorage
 	}
 
 	/**
-	 * Starts thread that runs method that watches preset folder for file changes that do preset refresh.
+	 * Checks if file on disk is in the state this client last left it in. File contents are only hashed if the
+	 * modification time or size differ from the written file, or if the file could have been changed again
+	 * within the granularity of its modification time.
 	 */
-	public void watchFolderChanges()
+	@Override
+	public boolean isWrittenByThisClient(final String fileName)
 	{
-		thread = new Thread(this::watchFolder);
-		thread.setName("PresetFolderWatcher");
-		thread.start();
-	}
+		final WrittenFile writtenFile = writtenFiles.get(fileName);
+		if (writtenFile == null)
+		{
+			return false;
+		}
 
-	public void stopWatcher()
-	{
-		thread.interrupt();
-		try
+		final File file = new File(folder, fileName);
+		if (!file.exists())
 		{
-			watcher.close();
+			return writtenFile.hash == null;
 		}
-		catch (IOException e)
+
+		if (writtenFile.hash == null)
+		{
+			return false;
+		}
+
+		if (file.lastModified() == writtenFile.lastModified && file.length() == writtenFile.size
+			&& !PresetFile.isRacy(writtenFile.lastModified, writtenFile.observedAt))
 		{
-			e.printStackTrace();
+			return true;
 		}
-		watcher = null;
-		thread = null;
+
+		return PresetFile.contentMatches(file, writtenFile.hash);
+	}
+
+	@FunctionalInterface
+	private interface JsonFileWriter
+	{
+		void write(Writer writer) throws IOException;
 	}
 
-	public void watchFolder()
+	/**
+	 * Preset file changes of a save. All changes are committed to the preset journal before they are applied.
+	 */
+	private class PresetFileSave implements PresetSave
 	{
-		Path presetDir = PRESETS_DIR.toPath();
+		private final List<PresetFileChange> changes = new ArrayList<>();
 
-		try
-		{
-			watcher = presetDir.getFileSystem().newWatchService();
-			presetDir.register(
-				watcher,
-				StandardWatchEventKinds.ENTRY_CREATE,
-				StandardWatchEventKinds.ENTRY_DELETE,
-				StandardWatchEventKinds.ENTRY_MODIFY
-			);
-		}
-		catch (IOException e)
+		/**
+		 * File states of written presets, updated once the files are written.
+		 */
+		private final List<PresetFile> writtenPresetFiles = new ArrayList<>();
+
+		/**
+		 * File states this client last knew of files that are overwritten, used to notice changes of other clients.
+		 */
+		private final List<PresetFile> overwrittenPresetFiles = new ArrayList<>();
+
+		private final PresetChanges presetChanges;
+
+		private PresetFileSave(final PresetChanges presetChanges)
 		{
-			e.printStackTrace();
+			this.presetChanges = presetChanges;
 		}
 
-		while (watcher != null)
+		@Override
+		public boolean write()
 		{
-			WatchKey wk;
-			if (!thread.isAlive())
+			if (changes.isEmpty())
 			{
-				return;
+				return true;
 			}
 
+			folderLock.lock();
 			try
 			{
-				wk = watcher.take();
-			}
-			catch (InterruptedException e)
-			{
-				Thread.currentThread().interrupt();
-				return;
-			}
+				for (PresetFile presetFile : overwrittenPresetFiles)
+				{
+					final File file = getFile(presetFile);
+					if (file.isFile() && !presetFile.isUpToDate(file))
+					{
+						// Last writer wins
+						log.warn(String.format("Preset %s was changed by another client, overwriting it with changes from this client", presetFile.getName()));
+					}
+				}
 
-			if (!wk.pollEvents().isEmpty())
-			{
-				// Run refreshPresets only once
-				boolean validMillisDiff = (System.currentTimeMillis() - lastRefreshTime) > 100;
-				if (validMillisDiff)
+				// Another client may have deleted the folder when it had no presets
+				createPresetFolder();
+
+				try
 				{
-					// Offset other clients so that file edits don't collapse
-					if (!localClientChange)
+					journal.commit(changes);
+				}
+				catch (IOException e)
+				{
+					log.warn("Could not write preset journal, saving presets without it", e);
+				}
+
+				final boolean applied = applyChanges(changes);
+
+				synchronized (PluginPresetsStorage.this)
+				{
+					for (PresetFile presetFile : writtenPresetFiles)
 					{
-						try
+						if (applied)
 						{
-							Thread.sleep(300);
+							// Remember written file state so that the files are not parsed on next load
+							final File file = getFile(presetFile);
+							presetFile.setObservedAt(System.currentTimeMillis());
+							presetFile.setLastModified(file.lastModified());
+							presetFile.setSize(file.length());
 						}
-						catch (InterruptedException e)
+						else
 						{
-							Thread.currentThread().interrupt();
-							return;
+							// Written again on next save
+							presetFile.setHash(null);
 						}
 					}
-
-					lastRefreshTime = System.currentTimeMillis();
-					SwingUtilities.invokeLater(plugin::refreshPresets); // Refresh
-					localClientChange = false;
+					writeIndex();
 				}
+
+				return applied;
 			}
-			boolean valid = wk.reset();
-			if (!valid)
+			finally
 			{
-				break;
+				synchronized (PluginPresetsStorage.this)
+				{
+					unwrittenSaves.remove(this);
+				}
+				folderLock.unlock();
 			}
 		}
+
+		@Override
+		public void releasePluginConfigs()
+		{
+			presetChanges.releasePluginConfigs(PluginPresetsStorage.this::releasePluginConfigs);
+		}
+	}
+
+	@AllArgsConstructor
+	private static class WrittenFile
+	{
+		/**
+		 * Hash of written contents, null if the file was deleted.
+		 */
+		private final String hash;
+		private final long lastModified;
+		private final long size;
+		private final long observedAt;
+	}
+
+	/**
+	 * Modification time and size of a file, and when they were taken.
+	 */
+	@AllArgsConstructor
+	private static class FileState
+	{
+		private final long observedAt;
+		private final long lastModified;
+		private final long size;
+	}
+
+	@AllArgsConstructor
+	private static class ParsedPresetFile
+	{
+		private final File file;
+		private final FileState state;
+		private final String hash;
+		private final PluginPreset preset;
+		private final LegacyPluginPreset legacyPreset;
 	}
-}
\ No newline at end of file
+}
@@ -28,7 +28,10 @@ import com.google.common.base.Strings;
 import java.awt.Toolkit;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.regex.Pattern;
 import org.apache.commons.text.WordUtils;
@@ -88,6 +91,22 @@ public class PluginPresetsUtils
 		}
 	}
 
+	/**
+	 * Syncs created, moved and deleted files of a directory to disk. Directories can't be opened on every platform,
+	 * e.g. on Windows, there the file system is left to persist them.
+	 */
+	public static void syncDirectory(final File directory)
+	{
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch (IOException ignore)
+		{
+			// Not supported on this platform
+		}
+	}
+
 	public static String getClipboardText()
 	{
 		final String clipboardText;
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.runelite.client.config.Keybind;
+
+/**
+ * Local presets of a save and those of them that changed since the preset store last wrote or read them.
+ * Shared by the preset stores, which only differ in how changed presets are written.
+ */
+class PresetChanges
+{
+	/**
+	 * A preset as it was last written or read by a preset store.
+	 */
+	interface StoredPreset
+	{
+		/**
+		 * Hash of the stored preset json, null if the preset must be written again.
+		 */
+		String getHash();
+
+		String getName();
+
+		Keybind getKeybind();
+
+		Boolean getLoadOnFocus();
+
+		/**
+		 * Checks whether preset values that are stored outside of plugin configs are unchanged.
+		 */
+		default boolean headerMatches(final PluginPreset preset)
+		{
+			return Objects.equals(getName(), preset.getName())
+				&& Objects.equals(getKeybind(), preset.getKeybind())
+				&& Objects.equals(getLoadOnFocus(), preset.getLoadOnFocus());
+		}
+	}
+
+	/**
+	 * Local presets by preset id, if multiple presets have the same id the first one is stored.
+	 */
+	private final Map<Long, PluginPreset> localPresets = new LinkedHashMap<>();
+
+	/**
+	 * Json of presets that changed since they were stored.
+	 */
+	private final Map<PluginPreset, String> changedPresets = new LinkedHashMap<>();
+
+	/**
+	 * Hashes of the json of every preset that is stored after the save, changed or not.
+	 */
+	private final Map<PluginPreset, String> storedHashes = new IdentityHashMap<>();
+
+	private final Function<PluginPreset, String> toJson;
+
+	/**
+	 * Compares presets to their stored state. Called while holding the store monitor, presets whose plugin configs
+	 * are not loaded are compared without loading them.
+	 *
+	 * @param pluginPresets all presets
+	 * @param storedPresets stored state by preset id, null for presets that were never stored
+	 * @param toJson        json a preset is stored as
+	 */
+	PresetChanges(final List<PluginPreset> pluginPresets, final Function<Long, ? extends StoredPreset> storedPresets,
+		final Function<PluginPreset, String> toJson)
+	{
+		this.toJson = toJson;
+
+		for (PluginPreset pluginPreset : pluginPresets)
+		{
+			// Only store local presets
+			if (pluginPreset.getLocal())
+			{
+				localPresets.putIfAbsent(pluginPreset.getId(), pluginPreset);
+			}
+		}
+
+		for (PluginPreset pluginPreset : localPresets.values())
+		{
+			final StoredPreset storedPreset = storedPresets.apply(pluginPreset.getId());
+
+			if (pluginPreset.isUnavailable())
+			{
+				// Plugin configs could not be read, keep the stored preset as it is
+				continue;
+			}
+
+			// Plugin configs that were never loaded can't have changed
+			if (storedPreset != null && !pluginPreset.isLoaded() && storedPreset.headerMatches(pluginPreset))
+			{
+				continue;
+			}
+
+			final String json = toJson.apply(pluginPreset);
+			final String hash = PluginPresetsStorage.hash(json);
+			storedHashes.put(pluginPreset, hash);
+
+			if (storedPreset != null && hash.equals(storedPreset.getHash()))
+			{
+				// Nothing changed since last save
+				continue;
+			}
+
+			changedPresets.put(pluginPreset, json);
+		}
+	}
+
+	boolean isLocal(final long id)
+	{
+		return localPresets.containsKey(id);
+	}
+
+	Map<PluginPreset, String> getChangedPresets()
+	{
+		return changedPresets;
+	}
+
+	String getHash(final PluginPreset pluginPreset)
+	{
+		return storedHashes.get(pluginPreset);
+	}
+
+	/**
+	 * Releases plugin configs of the stored presets once the save is written. Presets edited after the save was
+	 * prepared keep their plugin configs until they are saved again.
+	 */
+	void releasePluginConfigs(final Consumer<PluginPreset> release)
+	{
+		storedHashes.forEach((pluginPreset, hash) ->
+		{
+			if (pluginPreset.isLoaded() && hash.equals(PluginPresetsStorage.hash(toJson.apply(pluginPreset))))
+			{
+				release.accept(pluginPreset);
+			}
+		});
+	}
+}
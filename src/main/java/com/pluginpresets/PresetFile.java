@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import net.runelite.client.config.Keybind;
+
+/**
+ * State of a preset file in the preset folder, as last written or read by this client.
+ * Stored to the preset index so that presets can be listed without parsing unchanged preset files.
+ *
+ * @param fileName       Name of the preset file in the preset folder
+ * @param id             Id of the preset stored in the file
+ * @param name           Name of the preset
+ * @param keybind        Keybind of the preset
+ * @param loadOnFocus    Whether the preset is loaded on (un)focus
+ * @param customSettings Whether the preset contains custom settings
+ * @param lastModified   Modification time of the file when it was last written or read
+ * @param size           Size of the file when it was last written or read
+ * @param hash           Hash of the preset json stored in the file
+ * @param observedAt     Time when the modification time and size of the file were taken
+ */
+@Data
+@AllArgsConstructor
+public class PresetFile implements PresetChanges.StoredPreset
+{
+	/**
+	 * Coarsest modification time resolution of file systems the preset folder may be on, e.g. FAT stores
+	 * modification times in 2 second steps.
+	 */
+	static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+	private String fileName;
+	private long id;
+	private String name;
+	private Keybind keybind;
+	private Boolean loadOnFocus;
+	private boolean customSettings;
+	private long lastModified;
+	private long size;
+	private String hash;
+	private long observedAt;
+
+	public static PresetFile of(final File file, final PluginPreset preset, final String hash)
+	{
+		return of(file.getName(), file.lastModified(), file.length(), System.currentTimeMillis(), preset, hash);
+	}
+
+	/**
+	 * Creates a file state from a modification time and size that were taken before the file was read.
+	 */
+	public static PresetFile of(final String fileName, final long lastModified, final long size, final long observedAt,
+		final PluginPreset preset, final String hash)
+	{
+		return new PresetFile(fileName, preset.getId(), preset.getName(), preset.getKeybind(), preset.getLoadOnFocus(),
+			preset.containsCustomSettings(), lastModified, size, hash, observedAt);
+	}
+
+	/**
+	 * Checks whether the file is unchanged since it was last written or read. A file that was modified within
+	 * the timestamp granularity of being observed could have been changed again without a new modification time,
+	 * its contents are compared to the stored hash instead.
+	 */
+	public boolean isUpToDate(final File file)
+	{
+		if (file.lastModified() != lastModified || file.length() != size)
+		{
+			return false;
+		}
+
+		return !isRacy(lastModified, observedAt) || contentMatches(file, hash);
+	}
+
+	/**
+	 * Checks whether a file could have been changed after it was observed without changing its modification time.
+	 */
+	static boolean isRacy(final long lastModified, final long observedAt)
+	{
+		return lastModified > observedAt - TIMESTAMP_GRANULARITY_MILLIS;
+	}
+
+	/**
+	 * Compares contents of the file to the hash of written or read preset json.
+	 */
+	static boolean contentMatches(final File file, final String hash)
+	{
+		try
+		{
+			final String json = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+			return PluginPresetsStorage.hash(json).equals(hash);
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a preset from the stored values, plugin configs of the preset are loaded on first access.
+	 */
+	public PluginPreset toPreset()
+	{
+		PluginPreset preset = new PluginPreset(name);
+		preset.setPluginConfigs(null);
+		preset.setId(id);
+		preset.setKeybind(keybind);
+		preset.setLoadOnFocus(loadOnFocus);
+		preset.setCustomSettings(customSettings);
+		return preset;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import static net.runelite.client.RuneLite.RUNELITE_DIR;
+
+/**
+ * Exclusive lock of the preset folder shared by every client using the folder. Held while the preset folder is
+ * written or read, so that clients never see each others half applied saves. The lock is reentrant within a client.
+ * The lock file is kept next to the preset folder and never deleted, so that the folder can be removed while
+ * other clients wait on the lock.
+ */
+@Slf4j
+@Singleton
+public class PresetFolderLock
+{
+	static final String LOCK_FILE_NAME = "presets.lock";
+
+	/**
+	 * Longest time to wait for another client to release the lock. Clients hold it only while applying a save or
+	 * reading the folder, which takes milliseconds.
+	 */
+	private static final long LOCK_TIMEOUT_MILLIS = 2000;
+	private static final long MAX_RETRY_DELAY_MILLIS = 50;
+
+	private final File file;
+	private final ReentrantLock threadLock = new ReentrantLock();
+
+	private FileChannel channel;
+	private FileLock fileLock;
+
+	@Inject
+	public PresetFolderLock()
+	{
+		this(new File(RUNELITE_DIR, LOCK_FILE_NAME));
+	}
+
+	PresetFolderLock(final File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Waits until no other client holds the lock, polling it with a growing delay. If the lock can't be taken within
+	 * {@link #LOCK_TIMEOUT_MILLIS}, e.g. because another client hangs while holding it, or the lock file can't be
+	 * locked at all, the folder is used without it.
+	 */
+	public void lock()
+	{
+		threadLock.lock();
+		if (threadLock.getHoldCount() > 1)
+		{
+			return;
+		}
+
+		try
+		{
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+			final long deadline = System.currentTimeMillis() + LOCK_TIMEOUT_MILLIS;
+			long delay = 1;
+			while ((fileLock = channel.tryLock()) == null)
+			{
+				if (System.currentTimeMillis() + delay > deadline)
+				{
+					log.warn("Preset folder is locked by another client for too long, other clients may change presets at the same time");
+					close();
+					return;
+				}
+
+				Thread.sleep(delay);
+				delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not lock preset folder, other clients may change presets at the same time", e);
+			close();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			close();
+		}
+	}
+
+	public void unlock()
+	{
+		try
+		{
+			if (threadLock.getHoldCount() == 1)
+			{
+				close();
+			}
+		}
+		finally
+		{
+			threadLock.unlock();
+		}
+	}
+
+	private void close()
+	{
+		try
+		{
+			if (fileLock != null)
+			{
+				fileLock.release();
+			}
+			if (channel != null)
+			{
+				channel.close();
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not release preset folder lock", e);
+		}
+		fileLock = null;
+		channel = null;
+	}
+}
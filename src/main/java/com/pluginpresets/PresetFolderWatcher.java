@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.swing.SwingUtilities;
+
+/**
+ * Watches the preset folder for files changed by other clients or the user, and reloads them into the plugin.
+ */
+public class PresetFolderWatcher
+{
+	/**
+	 * Time a file has to stay unchanged before changes to it are reloaded, so that a burst of events reloads it once.
+	 */
+	private static final long WATCH_DEBOUNCE_MILLIS = 50;
+
+	private final PluginPresetsPlugin plugin;
+
+	/**
+	 * Changed file names and times when they are reloaded, only accessed from the watcher thread.
+	 */
+	private final Map<String, Long> pendingFileChanges = new HashMap<>();
+
+	private Thread thread;
+	private WatchService watcher;
+
+	@Inject
+	public PresetFolderWatcher(PluginPresetsPlugin plugin)
+	{
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Starts thread that runs method that watches preset folder for file changes that do preset refresh.
+	 */
+	public void watchFolderChanges()
+	{
+		thread = new Thread(this::watchFolder);
+		thread.setName("PresetFolderWatcher");
+		thread.start();
+	}
+
+	public void stopWatcher()
+	{
+		thread.interrupt();
+		try
+		{
+			watcher.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		watcher = null;
+		thread = null;
+	}
+
+	public void watchFolder()
+	{
+		Path presetDir = PluginPresetsPlugin.PRESETS_DIR.toPath();
+
+		try
+		{
+			watcher = presetDir.getFileSystem().newWatchService();
+			presetDir.register(
+				watcher,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE,
+				StandardWatchEventKinds.ENTRY_MODIFY
+			);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		while (watcher != null)
+		{
+			WatchKey wk;
+			if (!thread.isAlive())
+			{
+				return;
+			}
+
+			try
+			{
+				// Wait for new events until the next pending file change is due
+				wk = pendingFileChanges.isEmpty() ? watcher.take() : watcher.poll(nextPendingFileChangeDelay(), TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (ClosedWatchServiceException e)
+			{
+				return;
+			}
+
+			if (wk != null)
+			{
+				for (WatchEvent<?> event : wk.pollEvents())
+				{
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+					{
+						// Changed files are unknown
+						pendingFileChanges.clear();
+						SwingUtilities.invokeLater(plugin::refreshPresets);
+						continue;
+					}
+
+					final Object context = event.context();
+					if (context instanceof Path && plugin.getPresetStore().isStoreFile(context.toString()))
+					{
+						// Every event postpones the reload, other clients hold the folder lock until their save is applied
+						pendingFileChanges.put(context.toString(), System.currentTimeMillis() + WATCH_DEBOUNCE_MILLIS);
+					}
+				}
+
+				boolean valid = wk.reset();
+				if (!valid)
+				{
+					break;
+				}
+			}
+
+			reloadDueFileChanges();
+		}
+	}
+
+	private long nextPendingFileChangeDelay()
+	{
+		final long next = pendingFileChanges.values().stream().min(Long::compare).orElse(0L);
+		return Math.max(0, next - System.currentTimeMillis());
+	}
+
+	private void reloadDueFileChanges()
+	{
+		final long now = System.currentTimeMillis();
+		final Set<String> dueFileNames = new HashSet<>();
+		final PresetStore presetStore = plugin.getPresetStore();
+
+		pendingFileChanges.entrySet().removeIf(entry ->
+		{
+			if (entry.getValue() <= now)
+			{
+				if (!presetStore.isWrittenByThisClient(entry.getKey()))
+				{
+					dueFileNames.add(entry.getKey());
+				}
+				return true;
+			}
+			return false;
+		});
+
+		if (!dueFileNames.isEmpty())
+		{
+			SwingUtilities.invokeLater(() -> plugin.reloadPresetFiles(dueFileNames));
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of preset folder changes. A batch of changes is written to the journal and synced to disk
+ * with a single fsync before any preset file is touched, so that a save interrupted by a crash can be replayed
+ * on next start up. Batches are stored one per line, a batch without a line ending was never committed.
+ */
+@Slf4j
+@Singleton
+public class PresetJournal
+{
+	static final String JOURNAL_FILE_NAME = ".journal";
+
+	private static final Type BATCH_TYPE = new TypeToken<List<PresetFileChange>>()
+	{
+	}.getType();
+
+	private final File file;
+	private final Gson gson;
+
+	@Inject
+	public PresetJournal(Gson gson)
+	{
+		this(gson, PluginPresetsPlugin.PRESETS_DIR);
+	}
+
+	PresetJournal(Gson gson, File folder)
+	{
+		this.gson = gson;
+		this.file = new File(folder, JOURNAL_FILE_NAME);
+	}
+
+	/**
+	 * Durably appends a batch of changes to the journal.
+	 */
+	public void commit(final List<PresetFileChange> changes) throws IOException
+	{
+		final byte[] batch = (gson.toJson(changes, BATCH_TYPE) + "\n").getBytes(StandardCharsets.UTF_8);
+		final boolean created = !file.exists();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+		{
+			final ByteBuffer buffer = ByteBuffer.wrap(batch);
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+
+		if (created)
+		{
+			// A journal that was just created is lost on a crash unless its folder entry is synced too
+			PluginPresetsUtils.syncDirectory(file.getParentFile());
+		}
+	}
+
+	/**
+	 * Reads all committed batches from the journal. A partially written last batch is rolled back by ignoring it.
+	 *
+	 * @return changes of all committed batches in the order they were committed
+	 */
+	public List<PresetFileChange> readCommitted() throws IOException
+	{
+		final List<PresetFileChange> changes = new ArrayList<>();
+		if (!file.exists())
+		{
+			return changes;
+		}
+
+		final String journal = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+		int start = 0;
+		int end;
+		while ((end = journal.indexOf('\n', start)) != -1)
+		{
+			final String batch = journal.substring(start, end);
+			start = end + 1;
+
+			try
+			{
+				final List<PresetFileChange> batchChanges = gson.fromJson(batch, BATCH_TYPE);
+				if (batchChanges != null)
+				{
+					changes.addAll(batchChanges);
+				}
+			}
+			catch (JsonParseException e)
+			{
+				log.warn(String.format("Skipping corrupted preset journal entry, %s", e.getMessage()));
+			}
+		}
+
+		if (start < journal.length())
+		{
+			log.info("Rolling back uncommitted preset save");
+		}
+
+		return changes;
+	}
+
+	/**
+	 * Empties the journal after all committed changes have been applied.
+	 */
+	public void clear() throws IOException
+	{
+		if (file.exists())
+		{
+			FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING).close();
+		}
+	}
+
+	public void delete()
+	{
+		if (file.exists() && !file.delete())
+		{
+			log.warn(String.format("Could not delete %s", file.getName()));
+		}
+	}
+}
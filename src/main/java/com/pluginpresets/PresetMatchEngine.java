@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.swing.SwingUtilities;
+import net.runelite.client.config.RuneLiteConfig;
+
+/**
+ * Keeps the number of settings that differ between each preset and the current configurations.
+ * Changed config keys only update the presets that contain them, using an index from config keys to preset settings.
+ * Current values are looked up by config key, so match states are kept when the current configurations are read again.
+ */
+@Singleton
+public class PresetMatchEngine
+{
+	/**
+	 * Mismatch count of a preset whose plugin configs are still being read.
+	 */
+	public static final int NOT_COMPARED = -1;
+
+	private final CurrentConfigurations currentConfigurations;
+	private final PluginPresetsCurrentConfigManager currentConfigManager;
+	private final CustomSettingsManager customSettingsManager;
+
+	/**
+	 * Preset settings and on/off states that have a current value, by config group and key.
+	 * On/off states are stored by plugin name with {@link #enabledKey(String)}.
+	 */
+	private final Map<String, List<Entry>> entries = new HashMap<>();
+
+	/**
+	 * Number of differing settings by preset.
+	 */
+	private final Map<PluginPreset, Integer> mismatchCounts = new IdentityHashMap<>();
+
+	/**
+	 * Entries of each preset, used to remove a preset from the index.
+	 */
+	private final Map<PluginPreset, List<Entry>> presetEntries = new IdentityHashMap<>();
+
+	/**
+	 * Compared presets that have no plugin configs.
+	 */
+	private final Set<PluginPreset> emptyPresets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Presets whose plugin configs are read in the background, by a token of the read. A read whose token was
+	 * removed in between, e.g. because the preset changed, is ignored.
+	 */
+	private final Map<PluginPreset, Object> pendingReads = new IdentityHashMap<>();
+
+	private Executor configReader;
+	private Runnable comparedCallback;
+
+	@Inject
+	public PresetMatchEngine(CurrentConfigurations currentConfigurations, PluginPresetsCurrentConfigManager currentConfigManager,
+		CustomSettingsManager customSettingsManager)
+	{
+		this.currentConfigurations = currentConfigurations;
+		this.currentConfigManager = currentConfigManager;
+		this.customSettingsManager = customSettingsManager;
+	}
+
+	/**
+	 * Reads plugin configs of presets that are not in memory with the executor, instead of on the thread that looks
+	 * up their match state. The callback is run on the event dispatch thread once such presets are compared.
+	 */
+	public synchronized void setConfigReader(Executor configReader, Runnable comparedCallback)
+	{
+		this.configReader = configReader;
+		this.comparedCallback = comparedCallback;
+	}
+
+	/**
+	 * Forgets every match state, needed when the set of current configs changes. Presets are compared to the
+	 * current configurations on first lookup, so that plugin configs of presets that are not shown are not read.
+	 */
+	public synchronized void rebuild()
+	{
+		entries.clear();
+		mismatchCounts.clear();
+		presetEntries.clear();
+		emptyPresets.clear();
+		pendingReads.clear();
+	}
+
+	/**
+	 * Forgets match states of changed presets and of presets that were removed, changed presets are compared again
+	 * on next lookup. Other presets are not read again.
+	 *
+	 * @param presets        all presets
+	 * @param changedPresets presets that were added or whose plugin configs may have changed
+	 */
+	public synchronized void update(List<PluginPreset> presets, Collection<PluginPreset> changedPresets)
+	{
+		final Set<PluginPreset> currentPresets = Collections.newSetFromMap(new IdentityHashMap<>());
+		currentPresets.addAll(presets);
+
+		final List<PluginPreset> knownPresets = new ArrayList<>(mismatchCounts.keySet());
+		knownPresets.addAll(pendingReads.keySet());
+		for (PluginPreset preset : knownPresets)
+		{
+			if (!currentPresets.contains(preset))
+			{
+				removePreset(preset);
+			}
+		}
+
+		changedPresets.forEach(this::removePreset);
+	}
+
+	/**
+	 * Updates presets that contain a changed config key, after the change has been patched into the current configurations.
+	 */
+	public synchronized void configChanged(String group, String key)
+	{
+		entries.getOrDefault(group + "." + key, Collections.emptyList()).forEach(this::updateEntry);
+
+		if (RuneLiteConfig.GROUP_NAME.equals(group))
+		{
+			// Plugin on/off status is stored in RuneLite config group
+			final String pluginName = currentConfigManager.getPluginName(key);
+			if (pluginName != null)
+			{
+				entries.getOrDefault(enabledKey(pluginName), Collections.emptyList()).forEach(this::updateEntry);
+			}
+		}
+	}
+
+	/**
+	 * Updates match states after the current configurations were read again because custom settings were added or
+	 * removed. Only presets that store one of the changed custom settings are compared again, the settings they
+	 * are compared by may have been added to or removed from the current configurations.
+	 */
+	public synchronized void customSettingsChanged(Collection<CustomSetting> changedSettings)
+	{
+		entries.values().forEach(keyEntries -> keyEntries.forEach(this::updateEntry));
+
+		for (CustomSetting changedSetting : changedSettings)
+		{
+			final PluginSetting setting = changedSetting.getSetting();
+			customSettingsManager.getPresetsWithCustomSetting(setting.getCustomConfigName(), setting.getKey())
+				.forEach(this::removePreset);
+		}
+	}
+
+	/**
+	 * Number of preset settings and plugin on/off states that differ from the current configurations.
+	 * Presets are compared on first lookup. Plugin configs that are not in memory are read with the config reader,
+	 * the preset is then {@link #NOT_COMPARED} until they are read.
+	 */
+	public synchronized int getMismatchCount(PluginPreset preset)
+	{
+		final Integer count = mismatchCounts.get(preset);
+		if (count != null)
+		{
+			return count;
+		}
+
+		if (configReader == null || preset.isReadable())
+		{
+			addPreset(preset, preset.readPluginConfigs());
+			return mismatchCounts.get(preset);
+		}
+
+		if (!pendingReads.containsKey(preset))
+		{
+			readPluginConfigs(preset);
+		}
+		return NOT_COMPARED;
+	}
+
+	/**
+	 * Checks whether a compared preset has no plugin configs, without reading them again.
+	 */
+	public synchronized boolean isEmpty(PluginPreset preset)
+	{
+		return emptyPresets.contains(preset);
+	}
+
+	public boolean match(PluginPreset preset)
+	{
+		return getMismatchCount(preset) == 0;
+	}
+
+	private void readPluginConfigs(PluginPreset preset)
+	{
+		final Object read = new Object();
+		pendingReads.put(preset, read);
+		try
+		{
+			configReader.execute(() ->
+			{
+				final List<PluginConfig> pluginConfigs = preset.readPluginConfigs();
+				SwingUtilities.invokeLater(() -> pluginConfigsRead(preset, read, pluginConfigs));
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			// Config reader was shut down together with the plugin
+			pendingReads.remove(preset);
+		}
+	}
+
+	private void pluginConfigsRead(PluginPreset preset, Object read, List<PluginConfig> pluginConfigs)
+	{
+		synchronized (this)
+		{
+			if (pendingReads.get(preset) != read)
+			{
+				return;
+			}
+
+			pendingReads.remove(preset);
+			addPreset(preset, pluginConfigs);
+		}
+		comparedCallback.run();
+	}
+
+	private void addPreset(PluginPreset preset, List<PluginConfig> pluginConfigs)
+	{
+		mismatchCounts.put(preset, 0);
+		presetEntries.put(preset, new ArrayList<>());
+		if (pluginConfigs.isEmpty())
+		{
+			emptyPresets.add(preset);
+		}
+
+		for (PluginConfig presetConfig : pluginConfigs)
+		{
+			final PluginConfig currentConfig = currentConfigurations.getConfig(presetConfig.getName());
+			if (currentConfig == null)
+			{
+				continue;
+			}
+
+			if (presetConfig.getEnabled() != null)
+			{
+				addEntry(new Entry(enabledKey(currentConfig.getName()), preset, presetConfig.getEnabled().toString(), currentConfig.getName(), null, null));
+			}
+
+			for (PluginSetting presetSetting : presetConfig.getSettings())
+			{
+				final PluginSetting currentSetting = currentConfig.getSetting(presetSetting.getKey());
+				if (currentSetting == null || presetSetting.getValue() == null)
+				{
+					continue;
+				}
+
+				final String group = currentSetting.getCustomConfigName() != null ? currentSetting.getCustomConfigName() : currentConfig.getConfigName();
+				addEntry(new Entry(group + "." + currentSetting.getKey(), preset, presetSetting.getValue(), null, group, currentSetting.getKey()));
+			}
+		}
+	}
+
+	private void removePreset(PluginPreset preset)
+	{
+		pendingReads.remove(preset);
+		emptyPresets.remove(preset);
+		mismatchCounts.remove(preset);
+		final List<Entry> removedEntries = presetEntries.remove(preset);
+		if (removedEntries == null)
+		{
+			return;
+		}
+
+		for (Entry entry : removedEntries)
+		{
+			final List<Entry> keyEntries = entries.get(entry.key);
+			keyEntries.remove(entry);
+			if (keyEntries.isEmpty())
+			{
+				entries.remove(entry.key);
+			}
+		}
+	}
+
+	private void addEntry(Entry entry)
+	{
+		entries.computeIfAbsent(entry.key, k -> new ArrayList<>()).add(entry);
+		presetEntries.get(entry.preset).add(entry);
+		entry.mismatch = isMismatch(entry);
+		if (entry.mismatch)
+		{
+			mismatchCounts.merge(entry.preset, 1, Integer::sum);
+		}
+	}
+
+	private void updateEntry(Entry entry)
+	{
+		final boolean mismatch = isMismatch(entry);
+		if (mismatch != entry.mismatch)
+		{
+			entry.mismatch = mismatch;
+			mismatchCounts.merge(entry.preset, mismatch ? 1 : -1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Compares a preset value to the current value, presets are not compared by values that are not in the current
+	 * configurations.
+	 */
+	private boolean isMismatch(Entry entry)
+	{
+		if (entry.pluginName != null)
+		{
+			final PluginConfig currentConfig = currentConfigurations.getConfig(entry.pluginName);
+			return currentConfig != null && !entry.presetValue.equals(String.valueOf(currentConfig.getEnabled()));
+		}
+
+		final PluginSetting currentSetting = currentConfigurations.getSetting(entry.group, entry.settingKey);
+		return currentSetting != null && !entry.presetValue.equals(currentSetting.getValue());
+	}
+
+	private static String enabledKey(String pluginName)
+	{
+		return "enabled:" + pluginName;
+	}
+
+	/**
+	 * A preset value and the plugin on/off state or config key of the current value it is compared to.
+	 */
+	private static class Entry
+	{
+		private final String key;
+		private final PluginPreset preset;
+		private final String presetValue;
+		private final String pluginName;
+		private final String group;
+		private final String settingKey;
+		private boolean mismatch;
+
+		private Entry(String key, PluginPreset preset, String presetValue, String pluginName, String group, String settingKey)
+		{
+			this.key = key;
+			this.preset = preset;
+			this.presetValue = presetValue;
+			this.pluginName = pluginName;
+			this.group = group;
+			this.settingKey = settingKey;
+		}
+	}
+}
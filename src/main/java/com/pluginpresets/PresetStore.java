@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage of local presets in the preset folder.
+ */
+public interface PresetStore
+{
+	/**
+	 * Repairs the store after a save that was interrupted, e.g. by a crash. Called before presets are loaded.
+	 */
+	void recoverInterruptedSave();
+
+	/**
+	 * Loads all presets in the store.
+	 */
+	List<PluginPreset> loadPresets();
+
+	/**
+	 * Collects changes of local presets since they were last written or read, presets that are no longer in the list
+	 * are removed from the store. The preset folder is not changed until the returned save is written.
+	 */
+	PresetSave prepareSave(List<PluginPreset> pluginPresets);
+
+	/**
+	 * Writes local presets to the store right away, see {@link #prepareSave(List)}.
+	 *
+	 * @return true if every change was written to disk
+	 */
+	default boolean savePresets(final List<PluginPreset> pluginPresets)
+	{
+		return prepareSave(pluginPresets).write();
+	}
+
+	/**
+	 * Reloads presets from changed files of the preset folder.
+	 *
+	 * @param fileNames Names of created, modified or deleted files in the preset folder
+	 * @return Presets that were removed, added or changed
+	 */
+	PresetFolderUpdate reloadPresetFiles(Collection<String> fileNames);
+
+	/**
+	 * Checks whether file in the preset folder is used by the store, changes to other files are ignored.
+	 */
+	boolean isStoreFile(String fileName);
+
+	/**
+	 * Checks if file on disk is in the state this client last left it in.
+	 */
+	boolean isWrittenByThisClient(String fileName);
+
+	void deletePresetFolderIfEmpty();
+}
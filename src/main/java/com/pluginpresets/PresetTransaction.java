@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.runelite.client.plugins.Plugin;
+
+/**
+ * Changes that loading a preset makes, together with the values they replace, so that the load can be undone.
+ * Changes are applied in order: settings, then plugin restarts, then plugin on/off states.
+ */
+@Getter
+public class PresetTransaction
+{
+	private final String presetName;
+	private final List<ConfigWrite> writes = new ArrayList<>();
+	private final Set<Plugin> restartPlugins = new LinkedHashSet<>();
+	private final Map<Plugin, Boolean> enablePlugins = new LinkedHashMap<>();
+
+	public PresetTransaction(String presetName)
+	{
+		this.presetName = presetName;
+	}
+
+	public int size()
+	{
+		return writes.size() + restartPlugins.size() + enablePlugins.size();
+	}
+
+	/**
+	 * Creates a transaction that undoes the first changes of this transaction.
+	 *
+	 * @param appliedChanges number of changes that have been applied, including a change that failed partway
+	 */
+	public PresetTransaction inverse(int appliedChanges)
+	{
+		final PresetTransaction inverse = new PresetTransaction(presetName);
+		int remaining = appliedChanges;
+
+		for (ConfigWrite write : writes)
+		{
+			if (remaining-- <= 0)
+			{
+				return inverse;
+			}
+			inverse.writes.add(new ConfigWrite(write.groupName, write.key, write.previousValue, write.value));
+		}
+
+		for (Plugin plugin : restartPlugins)
+		{
+			if (remaining-- <= 0)
+			{
+				return inverse;
+			}
+			inverse.restartPlugins.add(plugin);
+		}
+
+		for (Map.Entry<Plugin, Boolean> entry : enablePlugins.entrySet())
+		{
+			if (remaining-- <= 0)
+			{
+				return inverse;
+			}
+			inverse.enablePlugins.put(entry.getKey(), !entry.getValue());
+		}
+
+		return inverse;
+	}
+
+	/**
+	 * A setting value to write.
+	 *
+	 * @param value         Value to write, null unsets the setting
+	 * @param previousValue Value before the write
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static class ConfigWrite
+	{
+		private final String groupName;
+		private final String key;
+		private final String value;
+		private final String previousValue;
+	}
+}
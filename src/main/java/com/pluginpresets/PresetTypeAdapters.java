@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import net.runelite.client.config.Keybind;
+
+/**
+ * Streaming Gson type adapters of the preset model, which replace reflective binding.
+ * Produced json is the same as with reflective binding, so existing preset files and configs stay compatible:
+ * fields are written in declaration order, null values are omitted and unknown fields are skipped when read.
+ */
+public final class PresetTypeAdapters
+{
+	public static final Type PRESET_LIST_TYPE = new TypeToken<List<PluginPreset>>()
+	{
+	}.getType();
+
+	private PresetTypeAdapters()
+	{
+	}
+
+	/**
+	 * Creates a Gson that has the preset type adapters registered on top of the given Gson.
+	 */
+	public static Gson register(final Gson gson)
+	{
+		final KeybindAdapter keybindAdapter = new KeybindAdapter();
+		final PluginSettingAdapter pluginSettingAdapter = new PluginSettingAdapter();
+		final PluginConfigAdapter pluginConfigAdapter = new PluginConfigAdapter(pluginSettingAdapter);
+
+		return gson.newBuilder()
+			.registerTypeAdapter(Keybind.class, keybindAdapter)
+			.registerTypeAdapter(PluginSetting.class, pluginSettingAdapter)
+			.registerTypeAdapter(PluginConfig.class, pluginConfigAdapter)
+			.registerTypeAdapter(PluginPreset.class, new PluginPresetAdapter(keybindAdapter, pluginConfigAdapter))
+			.create();
+	}
+
+	private static String nextString(final JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+		return in.nextString();
+	}
+
+	private static Boolean nextBoolean(final JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+		return in.nextBoolean();
+	}
+
+	private static <T> List<T> readList(final JsonReader in, final TypeAdapter<T> adapter) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+
+		final List<T> list = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext())
+		{
+			list.add(adapter.read(in));
+		}
+		in.endArray();
+		return list;
+	}
+
+	private static <T> void writeList(final JsonWriter out, final List<T> list, final TypeAdapter<T> adapter) throws IOException
+	{
+		if (list == null)
+		{
+			out.nullValue();
+			return;
+		}
+
+		out.beginArray();
+		for (T value : list)
+		{
+			adapter.write(out, value);
+		}
+		out.endArray();
+	}
+
+	private static class KeybindAdapter extends TypeAdapter<Keybind>
+	{
+		@Override
+		public void write(final JsonWriter out, final Keybind keybind) throws IOException
+		{
+			if (keybind == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("keyCode").value(keybind.getKeyCode());
+			out.name("modifiers").value(keybind.getModifiers());
+			out.endObject();
+		}
+
+		@Override
+		public Keybind read(final JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			int keyCode = 0;
+			int modifiers = 0;
+
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "keyCode":
+						keyCode = in.nextInt();
+						break;
+					case "modifiers":
+						modifiers = in.nextInt();
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return new Keybind(keyCode, modifiers);
+		}
+	}
+
+	private static class PluginSettingAdapter extends TypeAdapter<PluginSetting>
+	{
+		@Override
+		public void write(final JsonWriter out, final PluginSetting setting) throws IOException
+		{
+			if (setting == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("name").value(setting.getName());
+			out.name("key").value(setting.getKey());
+			out.name("value").value(setting.getValue());
+			out.name("customConfigName").value(setting.getCustomConfigName());
+			out.name("configName").value(setting.getConfigName());
+			out.endObject();
+		}
+
+		@Override
+		public PluginSetting read(final JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			final PluginSetting setting = new PluginSetting(null, null, null, null, null);
+
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "name":
+						setting.setName(nextString(in));
+						break;
+					case "key":
+						setting.setKey(nextString(in));
+						break;
+					case "value":
+						setting.setValue(nextString(in));
+						break;
+					case "customConfigName":
+						setting.setCustomConfigName(nextString(in));
+						break;
+					case "configName":
+						setting.setConfigName(nextString(in));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return setting;
+		}
+	}
+
+	private static class PluginConfigAdapter extends TypeAdapter<PluginConfig>
+	{
+		private final PluginSettingAdapter pluginSettingAdapter;
+
+		private PluginConfigAdapter(final PluginSettingAdapter pluginSettingAdapter)
+		{
+			this.pluginSettingAdapter = pluginSettingAdapter;
+		}
+
+		@Override
+		public void write(final JsonWriter out, final PluginConfig config) throws IOException
+		{
+			if (config == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("name").value(config.getName());
+			out.name("configName").value(config.getConfigName());
+			out.name("enabled").value(config.getEnabled());
+			out.name("settings");
+			writeList(out, config.getSettings(), pluginSettingAdapter);
+			out.endObject();
+		}
+
+		@Override
+		public PluginConfig read(final JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			final PluginConfig config = new PluginConfig(null, null, null, null);
+
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "name":
+						config.setName(nextString(in));
+						break;
+					case "configName":
+						config.setConfigName(nextString(in));
+						break;
+					case "enabled":
+						config.setEnabled(nextBoolean(in));
+						break;
+					case "settings":
+						config.setSettings(readList(in, pluginSettingAdapter));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return config;
+		}
+	}
+
+	private static class PluginPresetAdapter extends TypeAdapter<PluginPreset>
+	{
+		private final KeybindAdapter keybindAdapter;
+		private final PluginConfigAdapter pluginConfigAdapter;
+
+		private PluginPresetAdapter(final KeybindAdapter keybindAdapter, final PluginConfigAdapter pluginConfigAdapter)
+		{
+			this.keybindAdapter = keybindAdapter;
+			this.pluginConfigAdapter = pluginConfigAdapter;
+		}
+
+		@Override
+		public void write(final JsonWriter out, final PluginPreset preset) throws IOException
+		{
+			if (preset == null)
+			{
+				out.nullValue();
+				return;
+			}
+
+			out.beginObject();
+			out.name("id").value(preset.getId());
+			out.name("name").value(preset.getName());
+			out.name("keybind");
+			keybindAdapter.write(out, preset.getKeybind());
+			out.name("local").value(preset.getLocal());
+			out.name("loadOnFocus").value(preset.getLoadOnFocus());
+			out.name("pluginConfigs");
+			writeList(out, preset.readPluginConfigs(), pluginConfigAdapter);
+			out.endObject();
+		}
+
+		@Override
+		public PluginPreset read(final JsonReader in) throws IOException
+		{
+			if (in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+
+			// Values missing from json are left empty, like with reflective binding
+			final PluginPreset preset = new PluginPreset(null);
+			preset.setId(0);
+			preset.setLocal(null);
+			preset.setPluginConfigs(null);
+
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "id":
+						preset.setId(in.nextLong());
+						break;
+					case "name":
+						preset.setName(nextString(in));
+						break;
+					case "keybind":
+						preset.setKeybind(keybindAdapter.read(in));
+						break;
+					case "local":
+						preset.setLocal(nextBoolean(in));
+						break;
+					case "loadOnFocus":
+						preset.setLoadOnFocus(nextBoolean(in));
+						break;
+					case "pluginConfigs":
+						preset.setPluginConfigs(readList(in, pluginConfigAdapter));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return preset;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.inject.Singleton;
+
+/**
+ * Inverted index from words in plugin names, setting names and setting keys to the names of the plugins that own them.
+ * Used to find plugins by their settings in the edit view search.
+ */
+@Singleton
+public class SettingSearchIndex
+{
+	/**
+	 * Words shorter than this are not matched fuzzily, since nearly every short word is one edit away from another.
+	 */
+	private static final int MIN_FUZZY_WORD_LENGTH = 4;
+
+	/**
+	 * Plugin names by indexed word, sorted so that words starting with a prefix are next to each other.
+	 */
+	private final TreeMap<String, Set<String>> pluginsByWord = new TreeMap<>();
+
+	/**
+	 * Replaces the index with the given configs, used when the current configurations are read again.
+	 */
+	public synchronized void rebuild(List<PluginConfig> configs)
+	{
+		pluginsByWord.clear();
+		configs.forEach(this::addConfigUnsynchronized);
+	}
+
+	/**
+	 * Adds a config to the index, e.g. to an index of preset configs of plugins that are not installed.
+	 */
+	public synchronized void addConfig(PluginConfig config)
+	{
+		addConfigUnsynchronized(config);
+	}
+
+	/**
+	 * Finds plugins that have a word starting with, or one edit away from, each word of the query.
+	 *
+	 * @return names of matching plugins
+	 */
+	public synchronized Set<String> search(String query)
+	{
+		final List<String> queryWords = tokenize(query);
+		if (queryWords.isEmpty())
+		{
+			return Collections.emptySet();
+		}
+
+		Set<String> results = null;
+		for (String queryWord : queryWords)
+		{
+			final Set<String> wordResults = searchWord(queryWord);
+			if (results == null)
+			{
+				results = wordResults;
+			}
+			else
+			{
+				results.retainAll(wordResults);
+			}
+
+			if (results.isEmpty())
+			{
+				break;
+			}
+		}
+		return results;
+	}
+
+	private Set<String> searchWord(String queryWord)
+	{
+		final Set<String> results = new HashSet<>();
+
+		// Words starting with the query word
+		pluginsByWord.subMap(queryWord, true, queryWord + Character.MAX_VALUE, false)
+			.values()
+			.forEach(results::addAll);
+
+		if (results.isEmpty() && queryWord.length() >= MIN_FUZZY_WORD_LENGTH)
+		{
+			// Typos are rarely in the first letter, which keeps fuzzy matching to a small part of the index
+			final String first = queryWord.substring(0, 1);
+			for (Map.Entry<String, Set<String>> entry : pluginsByWord.subMap(first, true, first + Character.MAX_VALUE, false).entrySet())
+			{
+				if (isWithinOneEdit(queryWord, entry.getKey()))
+				{
+					results.addAll(entry.getValue());
+				}
+			}
+		}
+
+		return results;
+	}
+
+	private void addConfigUnsynchronized(PluginConfig config)
+	{
+		final String pluginName = config.getName();
+		addText(config.getName(), pluginName);
+
+		if (config.getSettings() == null)
+		{
+			return;
+		}
+
+		for (PluginSetting setting : config.getSettings())
+		{
+			addText(setting.getName(), pluginName);
+			addText(setting.getKey(), pluginName);
+		}
+	}
+
+	private void addText(String text, String pluginName)
+	{
+		for (String word : tokenize(text))
+		{
+			pluginsByWord.computeIfAbsent(word, w -> new HashSet<>(2)).add(pluginName);
+		}
+	}
+
+	/**
+	 * Splits text into lower case words at non letter or digit characters and camel case humps,
+	 * e.g. "drawDistance" and "Draw distance" both become "draw" and "distance".
+	 */
+	static List<String> tokenize(String text)
+	{
+		final List<String> words = new ArrayList<>();
+		if (text == null)
+		{
+			return words;
+		}
+
+		final StringBuilder word = new StringBuilder();
+		char previous = 0;
+		for (int i = 0; i < text.length(); i++)
+		{
+			final char c = text.charAt(i);
+			if (!Character.isLetterOrDigit(c))
+			{
+				addWord(words, word);
+			}
+			else
+			{
+				if (Character.isUpperCase(c) && Character.isLowerCase(previous))
+				{
+					addWord(words, word);
+				}
+				word.append(Character.toLowerCase(c));
+			}
+			previous = c;
+		}
+		addWord(words, word);
+
+		return words;
+	}
+
+	private static void addWord(List<String> words, StringBuilder word)
+	{
+		if (word.length() > 0)
+		{
+			words.add(word.toString());
+			word.setLength(0);
+		}
+	}
+
+	/**
+	 * Checks whether a word can be made from another with at most one inserted, removed or replaced character.
+	 */
+	static boolean isWithinOneEdit(String a, String b)
+	{
+		final int lengthDifference = a.length() - b.length();
+		if (Math.abs(lengthDifference) > 1)
+		{
+			return false;
+		}
+
+		final String longer = lengthDifference >= 0 ? a : b;
+		final String shorter = lengthDifference >= 0 ? b : a;
+
+		int i = 0;
+		int j = 0;
+		boolean edited = false;
+		while (i < longer.length() && j < shorter.length())
+		{
+			if (longer.charAt(i) != shorter.charAt(j))
+			{
+				if (edited)
+				{
+					return false;
+				}
+				edited = true;
+
+				if (longer.length() != shorter.length())
+				{
+					// Skip the inserted character
+					i++;
+					continue;
+				}
+			}
+			i++;
+			j++;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets.ui;
+
+import com.pluginpresets.CurrentConfigurations;
+import com.pluginpresets.PluginConfig;
+import com.pluginpresets.PluginPreset;
+import com.pluginpresets.PluginPresetsPresetManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names of the configs in each edit view filter. A config's filters are only evaluated again when its current
+ * values or its preset config change, so switching filters and rebuilding the edit view are set lookups.
+ */
+class ConfigFilterBuckets
+{
+	static final String INCLUDED = "Included";
+	static final String NOT_INCLUDED = "Not included";
+	static final String MODIFIED = "Modified";
+	static final String CONFIGS_MATCH = "Configs match";
+	static final String ONLY_PLUGIN_HUB = "Only Plugin Hub";
+
+	private final Map<String, Set<String>> buckets = new HashMap<>();
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * Configs that have some of their settings in the preset but not all.
+	 */
+	private final Set<String> partialConfigs = new HashSet<>();
+
+	private PluginPreset preset;
+	private long generation = -1;
+
+	/**
+	 * Evaluates filters of configs that changed since the last update.
+	 *
+	 * @param configurations configs shown in the edit view
+	 */
+	void update(PluginPreset editedPreset, List<PluginConfig> configurations, CurrentConfigurations currentConfigurations,
+		PluginPresetsPresetManager presetManager)
+	{
+		if (editedPreset != preset || currentConfigurations.getGeneration() != generation)
+		{
+			clear();
+			preset = editedPreset;
+			generation = currentConfigurations.getGeneration();
+		}
+
+		final Set<String> names = new HashSet<>();
+		for (PluginConfig config : configurations)
+		{
+			final String name = config.getName();
+			names.add(name);
+
+			final PluginConfig presetConfig = editedPreset.getConfig(config);
+			final long version = currentConfigurations.getConfigVersion(name);
+			final Entry entry = entries.get(name);
+			if (entry != null && entry.isValid(version, presetConfig))
+			{
+				continue;
+			}
+
+			remove(name);
+
+			final Set<String> filters = new HashSet<>();
+			final boolean partial = presetConfig != null && presetConfig.getSettings().size() < config.getSettings().size();
+
+			if (presetManager.isExternalPlugin(name))
+			{
+				filters.add(ONLY_PLUGIN_HUB);
+			}
+
+			if (presetConfig == null || partial)
+			{
+				filters.add(NOT_INCLUDED);
+			}
+
+			if (presetConfig != null)
+			{
+				filters.add(INCLUDED);
+				filters.add(presetConfig.match(config) ? CONFIGS_MATCH : MODIFIED);
+			}
+
+			filters.forEach(filter -> buckets.computeIfAbsent(filter, f -> new HashSet<>()).add(name));
+			if (partial)
+			{
+				partialConfigs.add(name);
+			}
+			entries.put(name, new Entry(version, presetConfig, filters));
+		}
+
+		// Configs that are no longer shown
+		new HashSet<>(entries.keySet()).stream()
+			.filter(name -> !names.contains(name))
+			.forEach(this::remove);
+	}
+
+	Set<String> getConfigNames(String filter)
+	{
+		return buckets.getOrDefault(filter, Collections.emptySet());
+	}
+
+	boolean isPartial(String configName)
+	{
+		return partialConfigs.contains(configName);
+	}
+
+	void clear()
+	{
+		buckets.clear();
+		entries.clear();
+		partialConfigs.clear();
+		preset = null;
+		generation = -1;
+	}
+
+	private void remove(String name)
+	{
+		final Entry entry = entries.remove(name);
+		if (entry != null)
+		{
+			entry.filters.forEach(filter -> buckets.get(filter).remove(name));
+		}
+		partialConfigs.remove(name);
+	}
+
+	/**
+	 * Filters of a config and the state they were evaluated for.
+	 */
+	private static class Entry
+	{
+		private final long version;
+		private final PluginConfig presetConfig;
+		private final List<?> presetSettings;
+		private final int presetSettingsSize;
+		private final Boolean presetEnabled;
+		private final Set<String> filters;
+
+		private Entry(long version, PluginConfig presetConfig, Set<String> filters)
+		{
+			this.version = version;
+			this.presetConfig = presetConfig;
+			this.presetSettings = presetConfig != null ? presetConfig.getSettings() : null;
+			this.presetSettingsSize = presetSettings != null ? presetSettings.size() : 0;
+			this.presetEnabled = presetConfig != null ? presetConfig.getEnabled() : null;
+			this.filters = filters;
+		}
+
+		/**
+		 * The editor replaces preset configs and setting lists, adds settings and changes the on/off status in place.
+		 */
+		private boolean isValid(long version, PluginConfig presetConfig)
+		{
+			if (this.version != version || this.presetConfig != presetConfig)
+			{
+				return false;
+			}
+
+			return presetConfig == null
+				|| (presetConfig.getSettings() == presetSettings
+				&& presetConfig.getSettings().size() == presetSettingsSize
+				&& presetConfig.getEnabled() == presetEnabled);
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets.ui;
+
+import com.pluginpresets.PluginConfig;
+import com.pluginpresets.PluginPresetsPlugin;
+import com.pluginpresets.PluginPresetsPresetEditor;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.GridBagConstraints;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * Config rows of the edit view. Rows are only created when they are scrolled into view, and turned back into
+ * placeholders once they are scrolled more than a screen away from it, so that scrolling through many configs
+ * doesn't keep every row in memory. Rows whose configs have not changed are reused between rebuilds instead of
+ * being created again.
+ */
+class ConfigPanelList
+{
+	/**
+	 * Height of a closed config row, used for rows that have not been created yet.
+	 */
+	private static final int CLOSED_ROW_HEIGHT = 26;
+	private static final int SETTING_ROW_HEIGHT = 26;
+
+	private final JPanel contentView;
+	private final PluginPresetsPlugin plugin;
+
+	/**
+	 * Created rows by config name, reused while their configs and open state stay the same.
+	 */
+	private Map<String, Row> rows = new HashMap<>();
+	private Map<String, Row> usedRows = new HashMap<>();
+	private final List<Placeholder> placeholders = new ArrayList<>();
+
+	/**
+	 * Placeholders of the previous rebuild by config name, whose heights are kept for the same configs.
+	 */
+	private Map<String, Placeholder> previousPlaceholders = new HashMap<>();
+	private PluginPresetsPresetEditor presetEditor;
+
+	/**
+	 * True while rows are added, rows are not created or released until the content view is complete.
+	 */
+	private boolean adding = false;
+
+	ConfigPanelList(JPanel contentView, JScrollPane scrollPane, PluginPresetsPlugin plugin)
+	{
+		this.contentView = contentView;
+		this.plugin = plugin;
+
+		scrollPane.getViewport().addChangeListener(e -> updateVisibleRows());
+	}
+
+	/**
+	 * Starts adding rows after the content view has been cleared.
+	 */
+	void begin()
+	{
+		previousPlaceholders = new HashMap<>();
+		placeholders.forEach(placeholder -> previousPlaceholders.put(placeholder.currentConfig.getName(), placeholder));
+		placeholders.clear();
+		usedRows = new HashMap<>();
+		adding = true;
+
+		// Rows capture the editor of the preset they were created for
+		if (plugin.getPresetEditor() != presetEditor)
+		{
+			presetEditor = plugin.getPresetEditor();
+			rows.clear();
+			previousPlaceholders.clear();
+		}
+	}
+
+	void add(PluginConfig currentConfig, PluginConfig presetConfig, List<String> openSettings, GridBagConstraints constraints)
+	{
+		final boolean open = openSettings.contains(currentConfig.getName());
+		final Row row = rows.get(currentConfig.getName());
+
+		if (row != null && row.matches(currentConfig, presetConfig, open))
+		{
+			row.openSettings = openSettings;
+			row.constraints = (GridBagConstraints) constraints.clone();
+			usedRows.put(currentConfig.getName(), row);
+			contentView.add(row.panel, constraints);
+			return;
+		}
+
+		// Keep the previous height of the row so that the scroll position doesn't jump
+		final Placeholder previousPlaceholder = previousPlaceholders.get(currentConfig.getName());
+		final int height;
+		if (row != null && row.open == open && row.panel.getHeight() > 0)
+		{
+			height = row.panel.getHeight();
+		}
+		else if (previousPlaceholder != null && previousPlaceholder.open == open)
+		{
+			height = previousPlaceholder.getPreferredSize().height;
+		}
+		else
+		{
+			height = estimateHeight(currentConfig, open);
+		}
+		final Placeholder placeholder = new Placeholder(currentConfig, presetConfig, openSettings, open, (GridBagConstraints) constraints.clone(), height);
+		placeholders.add(placeholder);
+		contentView.add(placeholder, constraints);
+	}
+
+	/**
+	 * Finishes adding rows, creates the rows that are visible once the content view has been laid out.
+	 */
+	void finish()
+	{
+		rows = usedRows;
+		previousPlaceholders = new HashMap<>();
+		adding = false;
+		SwingUtilities.invokeLater(this::updateVisibleRows);
+	}
+
+	void clear()
+	{
+		rows.clear();
+		usedRows.clear();
+		placeholders.clear();
+		previousPlaceholders.clear();
+		presetEditor = null;
+		adding = false;
+	}
+
+	private void updateVisibleRows()
+	{
+		if (adding || !contentView.isShowing())
+		{
+			return;
+		}
+
+		releaseDistantRows();
+		createVisibleRows();
+	}
+
+	/**
+	 * Turns rows that are more than a screen away from the visible area back into placeholders of the same height.
+	 */
+	private void releaseDistantRows()
+	{
+		if (!contentView.isValid())
+		{
+			// Bounds of rows are from before the last rebuild until the content view is laid out
+			return;
+		}
+
+		final Rectangle visible = contentView.getVisibleRect();
+		final int top = visible.y - visible.height;
+		final int bottom = visible.y + visible.height * 2;
+
+		boolean released = false;
+		for (Row row : new ArrayList<>(rows.values()))
+		{
+			final Rectangle bounds = row.panel.getBounds();
+			if (row.panel.getParent() != contentView || bounds.height == 0 || (bounds.y + bounds.height >= top && bounds.y <= bottom))
+			{
+				continue;
+			}
+
+			final int index = indexOf(row.panel);
+			final Placeholder placeholder = new Placeholder(row.currentConfig, row.presetConfig, row.openSettings, row.open, row.constraints, bounds.height);
+			contentView.remove(index);
+			contentView.add(placeholder, row.constraints, index);
+
+			placeholders.add(placeholder);
+			rows.remove(row.currentConfig.getName());
+			released = true;
+		}
+
+		if (released)
+		{
+			contentView.revalidate();
+			contentView.repaint();
+		}
+	}
+
+	private void createVisibleRows()
+	{
+		if (placeholders.isEmpty())
+		{
+			return;
+		}
+
+		boolean created = false;
+		for (Placeholder placeholder : new ArrayList<>(placeholders))
+		{
+			final Rectangle visible = placeholder.getVisibleRect();
+			if (placeholder.getParent() != contentView || visible.isEmpty())
+			{
+				continue;
+			}
+
+			final int index = indexOf(placeholder);
+			final ConfigPanel panel = new ConfigPanel(placeholder.currentConfig, placeholder.presetConfig, plugin, placeholder.openSettings);
+			contentView.remove(index);
+			contentView.add(panel, placeholder.constraints, index);
+
+			placeholders.remove(placeholder);
+			rows.put(placeholder.currentConfig.getName(), new Row(panel, placeholder.currentConfig, placeholder.presetConfig, placeholder.openSettings,
+				placeholder.open, placeholder.constraints));
+			created = true;
+		}
+
+		if (created)
+		{
+			contentView.revalidate();
+			contentView.repaint();
+			// Created rows can be smaller than estimated, which brings more rows into view
+			SwingUtilities.invokeLater(this::updateVisibleRows);
+		}
+	}
+
+	private int indexOf(Component component)
+	{
+		final Component[] components = contentView.getComponents();
+		for (int i = 0; i < components.length; i++)
+		{
+			if (components[i] == component)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int estimateHeight(PluginConfig config, boolean open)
+	{
+		final int settings = open && config.getSettings() != null ? config.getSettings().size() : 0;
+		return CLOSED_ROW_HEIGHT + settings * SETTING_ROW_HEIGHT;
+	}
+
+	/**
+	 * A created row and the state it was created for.
+	 */
+	private static class Row
+	{
+		private final ConfigPanel panel;
+		private final PluginConfig currentConfig;
+		private final PluginConfig presetConfig;
+		private final PluginConfig presetConfigCopy;
+		private final boolean open;
+
+		/**
+		 * Open settings and position of the latest rebuild that used the row, kept for releasing it to a placeholder.
+		 */
+		private List<String> openSettings;
+		private GridBagConstraints constraints;
+
+		private Row(ConfigPanel panel, PluginConfig currentConfig, PluginConfig presetConfig, List<String> openSettings, boolean open,
+			GridBagConstraints constraints)
+		{
+			this.panel = panel;
+			this.currentConfig = currentConfig;
+			this.presetConfig = presetConfig;
+			this.presetConfigCopy = presetConfig != null ? presetConfig.copy() : null;
+			this.openSettings = openSettings;
+			this.open = open;
+			this.constraints = constraints;
+		}
+
+		private boolean matches(PluginConfig currentConfig, PluginConfig presetConfig, boolean open)
+		{
+			// Preset configs are edited in place, so both the instance and its values have to be the same
+			return this.open == open
+				&& this.presetConfig == presetConfig
+				&& Objects.equals(presetConfigCopy, presetConfig)
+				&& this.currentConfig.equals(currentConfig);
+		}
+	}
+
+	/**
+	 * Stands in for a row until it is scrolled into view.
+	 */
+	private static class Placeholder extends JPanel
+	{
+		private final PluginConfig currentConfig;
+		private final PluginConfig presetConfig;
+		private final List<String> openSettings;
+		private final boolean open;
+		private final GridBagConstraints constraints;
+
+		private Placeholder(PluginConfig currentConfig, PluginConfig presetConfig, List<String> openSettings, boolean open,
+			GridBagConstraints constraints, int height)
+		{
+			this.currentConfig = currentConfig;
+			this.presetConfig = presetConfig;
+			this.openSettings = openSettings;
+			this.open = open;
+			this.constraints = constraints;
+			setOpaque(false);
+			setPreferredSize(new Dimension(0, height));
+		}
+	}
+}
@@ -29,6 +29,7 @@ import com.pluginpresets.CustomSetting;
 import com.pluginpresets.PluginConfig;
 import com.pluginpresets.PluginPreset;
 import com.pluginpresets.PluginPresetsPlugin;
+import com.pluginpresets.SettingSearchIndex;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -41,11 +42,15 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import javax.swing.Box;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
@@ -54,6 +59,8 @@ import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
@@ -92,6 +99,11 @@ public class PluginPresetsPluginPanel extends PluginPanel
 	private static final ImageIcon PLAY_ICON;
 	private static final ImageIcon PLAY_HOVER_ICON;
 
+	/**
+	 * Time typing has to pause before the edit view is searched.
+	 */
+	private static final int SEARCH_DEBOUNCE_MILLIS = 150;
+
 	static
 	{
 		final BufferedImage notificationImg = ImageUtil.loadImageResource(PluginPresetsPlugin.class,
@@ -148,6 +160,8 @@ public class PluginPresetsPluginPanel extends PluginPanel
 	private final JLabel ellipsisMenu = new JLabel(ELLIPSIS);
 	private final JLabel syncLabel = new JLabel();
 	private final JLabel updateAll = new JLabel(REFRESH_ICON);
+	private final JMenuItem undoLoadOption = new JMenuItem();
+	private final JCheckBoxMenuItem packedStoreOption = new JCheckBoxMenuItem();
 	private final PluginErrorPanel noPresetsPanel = new PluginErrorPanel();
 	private final PluginErrorPanel noContent = new PluginErrorPanel();
 	private final JPanel titlePanel = new JPanel(new BorderLayout());
@@ -163,6 +177,17 @@ public class PluginPresetsPluginPanel extends PluginPanel
 	private boolean openPartialConfigs;
 	private boolean openAll;
 	private MouseAdapter mouseAdapter;
+	private final ConfigPanelList configPanelList;
+	private final ConfigFilterBuckets filterBuckets = new ConfigFilterBuckets();
+	private final Timer searchDebounce = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> search());
+	private SwingWorker<Set<String>, Void> searchWorker;
+	private int searchGeneration;
+
+	/**
+	 * Names of configs that match {@link #searchedText}, null until the first search finishes.
+	 */
+	private Set<String> searchResults;
+	private String searchedText;
 
 	public PluginPresetsPluginPanel(PluginPresetsPlugin pluginPresetsPlugin)
 	{
@@ -295,20 +320,19 @@ public class PluginPresetsPluginPanel extends PluginPanel
 			@Override
 			public void insertUpdate(DocumentEvent e)
 			{
-				rebuild();
+				searchDebounce.restart();
 			}
 
 			@Override
 			public void removeUpdate(DocumentEvent e)
 			{
-				rebuild();
-
+				searchDebounce.restart();
 			}
 
 			@Override
 			public void changedUpdate(DocumentEvent e)
 			{
-				rebuild();
+				searchDebounce.restart();
 			}
 		});
 
@@ -441,6 +465,8 @@ public class PluginPresetsPluginPanel extends PluginPanel
 
 		JScrollPane scrollableContainer = new JScrollPane(contentWrapper);
 		scrollableContainer.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+		configPanelList = new ConfigPanelList(contentView, scrollableContainer, plugin);
+		searchDebounce.setRepeats(false);
 
 		noPresetsPanel.setContent("Plugin Presets", "Presets of your plugin configurations.");
 		noPresetsPanel.setVisible(false);
@@ -449,6 +475,19 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		add(scrollableContainer, BorderLayout.CENTER);
 	}
 
+	/**
+	 * Shows progress of a preset load in the title.
+	 */
+	public void setLoadProgress(String presetName, int done, int total)
+	{
+		title.setText(String.format("Loading %s %d/%d", presetName, done, total));
+	}
+
+	public void clearLoadProgress()
+	{
+		title.setText("Plugin Presets");
+	}
+
 	private void selectFilter(ActionEvent e)
 	{
 		JComboBox<String> cb = (JComboBox) e.getSource();
@@ -486,6 +525,8 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		}
 
 		errorNotification.setVisible(false);
+		undoLoadOption.setEnabled(plugin.canUndoPresetLoad());
+		packedStoreOption.setSelected(plugin.isPackedPresetStore());
 
 		repaint();
 		revalidate();
@@ -526,7 +567,8 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		List<PluginPreset> presets = plugin.getPluginPresets();
 		for (PluginPreset p : presets)
 		{
-			if (p.getLoadOnFocus() != null && !p.getPluginConfigs().isEmpty())
+			// Presets that were not compared yet are not known to be empty, panel is rebuilt once they are read
+			if (p.getLoadOnFocus() != null && !plugin.getPresetMatchEngine().isEmpty(p))
 			{
 				return true;
 			}
@@ -576,7 +618,7 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		searchBar.requestFocusInWindow();
 
 		CurrentConfigurations currentConfigurations = plugin.getCurrentConfigurations();
-		List<PluginConfig> configurations = currentConfigurations.getPluginConfigs();
+		List<PluginConfig> configurations = currentConfigurations.copyPluginConfigs();
 
 		// Only show custom configs that are saved to edited preset
 		filterCustomConfigs(configurations);
@@ -586,14 +628,13 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		// to some plugin hub plugin that you don't have in your current configs
 		addMissingConfigurations(configurations);
 
-		List<String> keywordFilteredConfigNames = filterIfSearchKeyword(configurations)
+		Set<String> keywordFilteredConfigNames = filterIfSearchKeyword(configurations)
 			.stream().map(PluginConfig::getName)
-			.collect(Collectors.toList());
+			.collect(Collectors.toSet());
 
+		filterBuckets.update(editedPreset, configurations, currentConfigurations, plugin.getPresetManager());
 		List<PluginConfig> filteredConfigs = filterConfigurations(filter, configurations);
-		List<String> filterConfigNames = filteredConfigs.stream().map(PluginConfig::getName).collect(Collectors.toList());
-
-		plugin.updateCurrentConfigurations();
+		Set<String> filterConfigNames = filteredConfigs.stream().map(PluginConfig::getName).collect(Collectors.toSet());
 
 		if (filteredConfigs.isEmpty() || keywordFilteredConfigNames.isEmpty())
 		{
@@ -602,24 +643,19 @@ public class PluginPresetsPluginPanel extends PluginPanel
 			constraints.gridy++;
 		}
 
-		boolean modified = false;
+		configPanelList.begin();
 		for (final PluginConfig currentConfig : configurations)
 		{
-			PluginConfig presetConfig = editedPreset.getConfig(currentConfig);
-
-			if (presetConfig != null && !presetConfig.match(currentConfig))
-			{
-				modified = true;
-			}
-
 			if (keywordFilteredConfigNames.contains(currentConfig.getName()) && filterConfigNames.contains(currentConfig.getName()))
 			{
-				contentView.add(new ConfigPanel(currentConfig, presetConfig, plugin, openSettings), constraints);
+				PluginConfig presetConfig = editedPreset.getConfig(currentConfig);
+				configPanelList.add(currentConfig, presetConfig, openSettings, constraints);
 				constraints.gridy++;
 			}
 		}
+		configPanelList.finish();
 
-		updateAll.setVisible(modified);
+		updateAll.setVisible(!filterBuckets.getConfigNames(ConfigFilterBuckets.MODIFIED).isEmpty());
 	}
 
 	private void filterCustomConfigs(List<PluginConfig> configurations)
@@ -666,6 +702,13 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		final String text = searchBar.getText();
 		if (!text.isEmpty())
 		{
+			if (searchResults != null && text.equals(searchedText))
+			{
+				return currentConfigurations.stream()
+					.filter(c -> searchResults.contains(c.getName()))
+					.collect(Collectors.toList());
+			}
+
 			currentConfigurations = currentConfigurations.stream()
 				.filter(
 					c -> c.getName().toLowerCase()
@@ -675,72 +718,106 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		return currentConfigurations;
 	}
 
-	private void sortAlphabetically(List<PluginConfig> configurations)
-	{
-		// // Sort alphabetically similar to the configurations tab
-		configurations.sort(Comparator.comparing(PluginConfig::getConfigName));
-	}
-
-	private List<PluginConfig> filterConfigurations(final String filter, final List<PluginConfig> configurations)
+	/**
+	 * Searches config names in the background once typing pauses, and renders the edit view once with the results.
+	 */
+	private void search()
 	{
-		if (!filtered.isEmpty())
+		if (editedPreset == null)
 		{
-			filtered.clear();
+			return;
 		}
 
-		sortAlphabetically(configurations);
-
-		for (final PluginConfig config : configurations)
+		final String text = searchBar.getText();
+		final int generation = ++searchGeneration;
+
+		// Plain names are immutable and safe to read from the search thread
+		final List<String> names = new ArrayList<>();
+		plugin.getCurrentConfigurations().getPluginConfigs().forEach(c -> names.add(c.getName()));
+		editedPreset.getPluginConfigs().forEach(c -> names.add(c.getName()));
+
+		// Settings of plugins that are only in the preset are searched in an index of this search, so that they
+		// are not left in the index of current configurations
+		final SettingSearchIndex searchIndex = plugin.getSettingSearchIndex();
+		final SettingSearchIndex presetSearchIndex = new SettingSearchIndex();
+		editedPreset.getPluginConfigs().stream()
+			.filter(c -> plugin.getCurrentConfigurations().getConfig(c.getName()) == null)
+			.forEach(presetSearchIndex::addConfig);
+
+		if (searchWorker != null)
 		{
-			PluginConfig presetConfig = editedPreset.getConfig(config);
-			boolean someSettingsUnticked = presetConfig != null && presetConfig.getSettings().size() < config.getSettings().size();
+			searchWorker.cancel(true);
+		}
 
-			if (filter.equals("All A to Z"))
+		searchWorker = new SwingWorker<Set<String>, Void>()
+		{
+			@Override
+			protected Set<String> doInBackground()
 			{
-				filtered.add(config);
-			}
+				final String lowerCaseText = text.toLowerCase();
+				final Set<String> results = names.stream()
+					.filter(name -> name.toLowerCase().contains(lowerCaseText))
+					.collect(Collectors.toCollection(HashSet::new));
 
-			if (filter.equals("Only Plugin Hub") && plugin.getPresetManager().isExternalPlugin(config.getName()))
-			{
-				filtered.add(config);
-			}
-			else if (presetConfig == null)
-			{
-				if (filter.equals("Not included"))
-				{
-					filtered.add(config);
-				}
+				// Plugins with matching setting names or keys
+				results.addAll(searchIndex.search(text));
+				results.addAll(presetSearchIndex.search(text));
+				return results;
 			}
-			else
+
+			@Override
+			protected void done()
 			{
-				if (filter.equals("Included"))
+				// Results of a query that has been replaced by newer input are dropped
+				if (isCancelled() || generation != searchGeneration)
 				{
-					filtered.add(config);
+					return;
 				}
 
-				if (filter.equals("Not included") && someSettingsUnticked)
+				try
 				{
-					filtered.add(config);
+					searchResults = get();
+					searchedText = text;
 				}
-
-				if (presetConfig.match(config))
+				catch (InterruptedException | ExecutionException e)
 				{
-					if (filter.equals("Configs match"))
-					{
-						filtered.add(config);
-					}
+					return;
 				}
-				else
+
+				if (editedPreset != null)
 				{
-					if (filter.equals("Modified"))
-					{
-						filtered.add(config);
-					}
+					rebuild();
 				}
 			}
+		};
+		searchWorker.execute();
+	}
+
+	private void sortAlphabetically(List<PluginConfig> configurations)
+	{
+		// // Sort alphabetically similar to the configurations tab
+		configurations.sort(Comparator.comparing(PluginConfig::getConfigName));
+	}
+
+	private List<PluginConfig> filterConfigurations(final String filter, final List<PluginConfig> configurations)
+	{
+		if (!filtered.isEmpty())
+		{
+			filtered.clear();
+		}
+
+		sortAlphabetically(configurations);
+
+		final Set<String> filterConfigNames = filterBuckets.getConfigNames(filter);
+		for (final PluginConfig config : configurations)
+		{
+			if (filter.equals("All A to Z") || filterConfigNames.contains(config.getName()))
+			{
+				filtered.add(config);
+			}
 
 			// Runs when "Open partial configs" is clicked
-			if (openPartialConfigs && someSettingsUnticked)
+			if (openPartialConfigs && filterBuckets.isPartial(config.getName()))
 			{
 				openSettings.add(config.getName());
 			}
@@ -851,12 +928,24 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		refreshOption.setText("Refresh presets");
 		refreshOption.addActionListener(e -> plugin.refreshPresets());
 
+		undoLoadOption.setText("Undo last preset load");
+		undoLoadOption.setToolTipText("Restore settings and plugins changed by the last loaded preset");
+		undoLoadOption.setEnabled(false);
+		undoLoadOption.addActionListener(e -> plugin.undoLastPresetLoad());
+
+		packedStoreOption.setText("Store presets in a single file");
+		packedStoreOption.setToolTipText("Faster with many presets, presets are no longer stored as separate .json files");
+		packedStoreOption.setSelected(plugin.isPackedPresetStore());
+		packedStoreOption.addActionListener(e -> plugin.setPackedPresetStore(packedStoreOption.isSelected()));
+
 		JPopupMenu popupMenu = new JPopupMenu();
 		popupMenu.setBorder(new EmptyBorder(2, 2, 2, 0));
 		popupMenu.add(importOption);
 		popupMenu.add(createEmptyOption);
+		popupMenu.add(undoLoadOption);
 		popupMenu.add(divider);
 		popupMenu.add(refreshOption);
+		popupMenu.add(packedStoreOption);
 		return popupMenu;
 	}
 
@@ -886,5 +975,7 @@ public class PluginPresetsPluginPanel extends PluginPanel
 		plugin.setPresetEditor(null);
 		plugin.setFocusChangedPaused(false);
 		editedPreset = null;
+		configPanelList.clear();
+		filterBuckets.clear();
 	}
 }
@@ -28,6 +28,7 @@ import com.pluginpresets.PluginPreset;
 import com.pluginpresets.PluginPresetsPlugin;
 import com.pluginpresets.PluginPresetsPresetEditor;
 import com.pluginpresets.PluginPresetsUtils;
+import com.pluginpresets.PresetMatchEngine;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -285,12 +286,21 @@ class PresetPanel extends JPanel
 		JLabel notice = new JLabel();
 
 		boolean emptyPreset = false;
-		if (preset.match(plugin.getCurrentConfigurations()))
+		int mismatchCount = plugin.getPresetMatchEngine().getMismatchCount(preset);
+		if (preset.isUnavailable())
+		{
+			notice.setFont(FontManager.getRunescapeSmallFont());
+			notice.setForeground(ColorScheme.PROGRESS_ERROR_COLOR);
+			notice.setText("Could not be read");
+			notice.setToolTipText("The configurations of this preset could not be read from the preset folder. The preset is not changed until its file can be read.");
+			loadLabel.setVisible(false);
+		}
+		else if (mismatchCount == 0)
 		{
 			loadLabel.setIcon(SWITCH_ON_ICON);
 			loadLabel.setToolTipText("Current configurations match this preset");
 
-			emptyPreset = preset.isEmpty();
+			emptyPreset = plugin.getPresetMatchEngine().isEmpty(preset);
 			if (emptyPreset)
 			{
 				notice.setFont(FontManager.getRunescapeSmallFont());
@@ -302,6 +312,14 @@ class PresetPanel extends JPanel
 		}
 		else
 		{
+			// Presets that are not compared yet get their notice once their configurations are read
+			if (mismatchCount != PresetMatchEngine.NOT_COMPARED)
+			{
+				notice.setFont(FontManager.getRunescapeSmallFont());
+				notice.setForeground(ColorScheme.LIGHT_GRAY_COLOR.darker());
+				notice.setText(mismatchCount == 1 ? "1 setting differs" : mismatchCount + " settings differ");
+			}
+
 			loadLabel.setIcon(SWITCH_OFF_ICON);
 			loadLabel.setToolTipText("Load this preset");
 			loadLabel.addMouseListener(new MouseAdapter()
@@ -483,6 +501,12 @@ class PresetPanel extends JPanel
 			@Override
 			public void mousePressed(MouseEvent mouseEvent)
 			{
+				if (preset.isUnavailable())
+				{
+					plugin.renderPanelErrorNotification("Preset " + preset.getName() + " could not be read from the preset folder.");
+					return;
+				}
+
 				plugin.exportPresetToClipboard(preset);
 				JOptionPane.showMessageDialog(shareLabel,
 					"Preset data of '" + preset.getName() + "' copied to clipboard.", "Preset exported",
@@ -786,6 +810,12 @@ class PresetPanel extends JPanel
 
 	public void editPreset(PluginPreset preset)
 	{
+		if (preset.isUnavailable())
+		{
+			plugin.renderPanelErrorNotification("Preset " + preset.getName() + " could not be read from the preset folder.");
+			return;
+		}
+
 		plugin.setPresetEditor(new PluginPresetsPresetEditor(plugin, preset, plugin.getCurrentConfigurations()));
 		plugin.setFocusChangedPaused(true);
 		plugin.rebuildPluginUi();
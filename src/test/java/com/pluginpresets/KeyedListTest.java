@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedListTest
+{
+	private KeyedList<String, String> list;
+
+	@Before
+	public void before()
+	{
+		// Keyed by first letter
+		list = new KeyedList<>(Arrays.asList("apple", "banana", "avocado"), s -> s.substring(0, 1));
+	}
+
+	@Test
+	public void testFirstElementWins()
+	{
+		assertEquals("apple", list.getByKey("a"));
+		assertEquals("banana", list.getByKey("b"));
+		assertNull(list.getByKey("c"));
+	}
+
+	@Test
+	public void testAddedElementIsFound()
+	{
+		assertNull(list.getByKey("c"));
+		list.add("cherry");
+		assertEquals("cherry", list.getByKey("c"));
+
+		list.add(0, "apricot");
+		assertEquals("apricot", list.getByKey("a"));
+	}
+
+	@Test
+	public void testRemovedElementIsReplacedByLaterElement()
+	{
+		assertEquals("apple", list.getByKey("a"));
+		list.remove("apple");
+		assertEquals("avocado", list.getByKey("a"));
+
+		list.removeIf(s -> s.startsWith("a"));
+		assertNull(list.getByKey("a"));
+	}
+
+	@Test
+	public void testSetElementIsFound()
+	{
+		assertEquals("banana", list.getByKey("b"));
+		list.set(1, "cherry");
+		assertNull(list.getByKey("b"));
+		assertEquals("cherry", list.getByKey("c"));
+	}
+
+	@Test
+	public void testKeyedListIsNotCopied()
+	{
+		assertSame(list, KeyedList.of(list, s -> s.substring(0, 1)));
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackedPresetStorageTest
+{
+	private static final String CONFIG_NAME = "agility";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PresetFolderLock folderLock;
+	private PackedPresetStorage storage;
+	private File packFile;
+
+	@Before
+	public void before()
+	{
+		folderLock = new PresetFolderLock(new File(folder.getRoot(), "presets.lock"));
+		storage = newStorage();
+		packFile = new File(folder.getRoot(), PackedPresetStorage.PACK_FILE_NAME);
+	}
+
+	@Test
+	public void testLoadSavedPresets()
+	{
+		final PluginPreset preset = preset(1, "Preset", "red");
+		assertTrue(storage.savePresets(Collections.singletonList(preset)));
+
+		final List<PluginPreset> presets = newStorage().loadPresets();
+		assertEquals(1, presets.size());
+		assertEquals("Preset", presets.get(0).getName());
+		assertEquals("red", value(presets.get(0)));
+	}
+
+	@Test
+	public void testLatestRecordWins()
+	{
+		final PluginPreset preset = preset(1, "Preset", "red");
+		final PluginPreset removed = preset(2, "Removed", "blue");
+		assertTrue(storage.savePresets(Arrays.asList(preset, removed)));
+
+		preset.getPluginConfigs().get(0).getSettings().get(0).setValue("green");
+		assertTrue(storage.savePresets(Collections.singletonList(preset)));
+
+		final List<PluginPreset> presets = newStorage().loadPresets();
+		assertEquals(1, presets.size());
+		assertEquals(1, presets.get(0).getId());
+		assertEquals("green", value(presets.get(0)));
+	}
+
+	@Test
+	public void testTornRecordIsIgnoredAndRemoved() throws IOException
+	{
+		assertTrue(storage.savePresets(Collections.singletonList(preset(1, "Preset", "red"))));
+		final long validLength = packFile.length();
+
+		// Length and type of a record that was never fully written
+		Files.write(packFile.toPath(), new byte[]{0, 0, 0, 100, 1}, StandardOpenOption.APPEND);
+
+		final PackedPresetStorage recovered = newStorage();
+		assertEquals(1, recovered.loadPresets().size());
+
+		recovered.recoverInterruptedSave();
+		assertEquals(validLength, packFile.length());
+	}
+
+	@Test
+	public void testRecordsAfterChecksumMismatchAreIgnored() throws IOException
+	{
+		assertTrue(storage.savePresets(Collections.singletonList(preset(1, "First", "red"))));
+		assertTrue(storage.savePresets(Arrays.asList(preset(1, "First", "red"), preset(2, "Second", "blue"))));
+
+		try (RandomAccessFile file = new RandomAccessFile(packFile, "rw"))
+		{
+			// Corrupt the checksum of the last record
+			file.seek(file.length() - 1);
+			final int last = file.read();
+			file.seek(file.length() - 1);
+			file.write(last ^ 0xFF);
+		}
+
+		final List<PluginPreset> presets = newStorage().loadPresets();
+		assertEquals(1, presets.size());
+		assertEquals("First", presets.get(0).getName());
+	}
+
+	@Test
+	public void testPluginConfigsAreReadAfterOtherClientCompacted() throws IOException
+	{
+		final PluginPreset large = preset(1, "Large", largeValue('a'));
+		final PluginPreset preset = preset(2, "Preset", "red");
+		assertTrue(storage.savePresets(Collections.singletonList(large)));
+		assertTrue(storage.savePresets(Arrays.asList(large, preset)));
+
+		// Another client rewrites the large preset until the pack file is compacted, which moves the other preset
+		final PackedPresetStorage otherClient = newStorage();
+		final List<PluginPreset> otherPresets = otherClient.loadPresets();
+		for (char c = 'b'; c <= 'c'; c++)
+		{
+			otherPresets.get(0).getPluginConfigs().get(0).getSettings().get(0).setValue(largeValue(c));
+			assertTrue(otherClient.savePresets(otherPresets));
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(packFile, "r"))
+		{
+			// Compaction keeps records in order of their latest change
+			file.seek(Integer.BYTES + Integer.BYTES + Byte.BYTES);
+			assertEquals(2, file.readLong());
+		}
+
+		final List<PluginConfig> pluginConfigs = storage.loadPluginConfigs(2);
+		assertNotNull(pluginConfigs);
+		assertEquals("red", pluginConfigs.get(0).getSettings().get(0).getValue());
+	}
+
+	@Test
+	public void testPresetDeletedAfterSwitchingStoresIsNotImportedAgain()
+	{
+		final PluginPresetsStorage fileStorage = new PluginPresetsStorage(null, new PresetJournal(new Gson(), folder.getRoot()),
+			folderLock, new Gson(), folder.getRoot());
+		try
+		{
+			final PluginPreset kept = preset(1, "Kept", "red");
+			final PluginPreset deleted = preset(2, "Deleted", "blue");
+			assertTrue(fileStorage.savePresets(Arrays.asList(kept, deleted)));
+
+			assertEquals(2, switchStore(fileStorage, storage, Arrays.asList(kept, deleted)).size());
+			assertTrue(storage.savePresets(Collections.singletonList(kept)));
+
+			final List<PluginPreset> presets = switchStore(storage, fileStorage, Collections.singletonList(kept));
+			assertEquals(1, presets.size());
+			assertEquals("Kept", presets.get(0).getName());
+			assertEquals(1, switchStore(fileStorage, newStorage(), presets).size());
+		}
+		finally
+		{
+			fileStorage.shutDownLoader();
+		}
+	}
+
+	@Test(timeout = 1000)
+	public void testPluginConfigsAreReadWhileFolderIsLocked() throws InterruptedException
+	{
+		assertTrue(storage.savePresets(Collections.singletonList(preset(1, "Preset", "red"))));
+
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch read = new CountDownLatch(1);
+		final Thread saveThread = new Thread(() ->
+		{
+			folderLock.lock();
+			try
+			{
+				locked.countDown();
+				read.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			finally
+			{
+				folderLock.unlock();
+			}
+		});
+		saveThread.start();
+		locked.await();
+
+		try
+		{
+			final List<PluginConfig> pluginConfigs = storage.loadPluginConfigs(1);
+			assertNotNull(pluginConfigs);
+			assertEquals("red", pluginConfigs.get(0).getSettings().get(0).getValue());
+		}
+		finally
+		{
+			read.countDown();
+			saveThread.join();
+		}
+	}
+
+	/**
+	 * Moves presets to another store the way the plugin does when the preset store is switched.
+	 */
+	private static List<PluginPreset> switchStore(final PresetStore source, final PresetStore target, final List<PluginPreset> presets)
+	{
+		final List<PluginPreset> movedPresets = PluginPresetsPlugin.movedPresets(presets, target.loadPresets());
+		assertTrue(target.savePresets(movedPresets));
+		assertTrue(source.savePresets(Collections.emptyList()));
+		return movedPresets;
+	}
+
+	private PackedPresetStorage newStorage()
+	{
+		final PluginPresetsStorage presetStorage = new PluginPresetsStorage(null, null, folderLock, new Gson(), folder.getRoot());
+		return new PackedPresetStorage(presetStorage, folderLock, folder.getRoot());
+	}
+
+	private static PluginPreset preset(final long id, final String name, final String value)
+	{
+		final PluginPreset preset = new PluginPreset(name);
+		preset.setId(id);
+		final PluginSetting setting = new PluginSetting("Color", "color", value, null, CONFIG_NAME);
+		preset.getPluginConfigs().add(new PluginConfig("Agility", CONFIG_NAME, true, Collections.singletonList(setting)));
+		return preset;
+	}
+
+	private static String value(final PluginPreset preset)
+	{
+		return preset.getPluginConfigs().get(0).getSettings().get(0).getValue();
+	}
+
+	private static String largeValue(final char c)
+	{
+		final char[] value = new char[40 * 1024];
+		Arrays.fill(value, c);
+		return new String(value);
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginPresetsStorageTest
+{
+	private static final String CONFIG_NAME = "agility";
+	private static final long OLD_MODIFICATION_TIME = 946684800000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PresetFolderLock folderLock;
+	private PluginPresetsStorage storage;
+
+	@Before
+	public void before()
+	{
+		folderLock = new PresetFolderLock(new File(folder.getRoot(), "presets.lock"));
+		storage = newStorage();
+	}
+
+	@After
+	public void after()
+	{
+		storage.shutDownLoader();
+	}
+
+	@Test
+	public void testOnlyChangedPresetsAreWritten()
+	{
+		final PluginPreset unchanged = preset(1, "Unchanged", "red");
+		final PluginPreset changed = preset(2, "Changed", "blue");
+		assertTrue(storage.savePresets(Arrays.asList(unchanged, changed)));
+
+		final File unchangedFile = file("Unchanged.json");
+		assertTrue(unchangedFile.setLastModified(OLD_MODIFICATION_TIME));
+
+		changed.getPluginConfigs().get(0).getSettings().get(0).setValue("green");
+		assertTrue(storage.savePresets(Arrays.asList(unchanged, changed)));
+
+		assertEquals(OLD_MODIFICATION_TIME, unchangedFile.lastModified());
+		assertEquals("green", value(load("Changed")));
+	}
+
+	@Test
+	public void testRenamedPresetMovesFileAndKeepsSuffixedFile()
+	{
+		final PluginPreset first = preset(1, "Preset", "red");
+		final PluginPreset second = preset(2, "Preset", "blue");
+		assertTrue(storage.savePresets(Arrays.asList(first, second)));
+		assertTrue(file("Preset.json").isFile());
+		assertTrue(file("Preset (1).json").isFile());
+
+		first.setName("Renamed");
+		assertTrue(storage.savePresets(Arrays.asList(first, second)));
+
+		assertFalse(file("Preset.json").exists());
+		assertTrue(file("Renamed.json").isFile());
+		assertTrue(file("Preset (1).json").isFile());
+		assertEquals("red", value(load("Renamed")));
+		assertEquals("blue", value(load("Preset")));
+	}
+
+	@Test
+	public void testDuplicatePresetFileIsRemovedOnSave() throws IOException
+	{
+		writeFile("A.json", preset(1, "First", "red"));
+		writeFile("B.json", preset(1, "Duplicate", "blue"));
+
+		final List<PluginPreset> presets = storage.loadPresets();
+		assertEquals(1, presets.size());
+		assertEquals("First", presets.get(0).getName());
+
+		assertTrue(storage.savePresets(presets));
+		assertTrue(file("A.json").isFile());
+		assertFalse(file("B.json").exists());
+	}
+
+	@Test
+	public void testFileChangedWithinTimestampGranularityIsParsed() throws IOException
+	{
+		assertTrue(storage.savePresets(Collections.singletonList(preset(1, "Alpha", "red"))));
+		assertEquals(1, newStorage().loadPresets().size());
+
+		// Same size and modification time as the indexed file
+		final File file = file("Alpha.json");
+		final long lastModified = file.lastModified();
+		writeFile("Alpha.json", preset(1, "Omega", "red"));
+		assertTrue(file.setLastModified(lastModified));
+
+		final List<PluginPreset> presets = newStorage().loadPresets();
+		assertEquals(1, presets.size());
+		assertEquals("Omega", presets.get(0).getName());
+	}
+
+	@Test
+	public void testIndexedFileThatWasDeletedIsNotLoaded()
+	{
+		assertTrue(storage.savePresets(Arrays.asList(preset(1, "Kept", "red"), preset(2, "Deleted", "blue"))));
+		assertTrue(file("Deleted.json").delete());
+
+		final List<PluginPreset> presets = newStorage().loadPresets();
+		assertEquals(1, presets.size());
+		assertEquals("Kept", presets.get(0).getName());
+	}
+
+	@Test
+	public void testOwnWritesAreRecognized() throws IOException
+	{
+		final PluginPreset preset = preset(1, "Preset", "red");
+		assertTrue(storage.savePresets(Collections.singletonList(preset)));
+		assertTrue(storage.isWrittenByThisClient("Preset.json"));
+		assertFalse(storage.isWrittenByThisClient("Other.json"));
+
+		preset.setName("Renamed");
+		assertTrue(storage.savePresets(Collections.singletonList(preset)));
+		assertTrue(storage.isWrittenByThisClient("Preset.json"));
+		assertTrue(storage.isWrittenByThisClient("Renamed.json"));
+
+		// Another client changes the file
+		writeFile("Renamed.json", preset(1, "Renamed", "blue"));
+		assertFalse(storage.isWrittenByThisClient("Renamed.json"));
+	}
+
+	private PluginPresetsStorage newStorage()
+	{
+		return new PluginPresetsStorage(null, new PresetJournal(new Gson(), folder.getRoot()), folderLock, new Gson(), folder.getRoot());
+	}
+
+	private PluginPreset load(final String name)
+	{
+		final PluginPresetsStorage loader = newStorage();
+		try
+		{
+			return loader.loadPresets().stream()
+				.filter(preset -> preset.getName().equals(name))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+		}
+		finally
+		{
+			loader.shutDownLoader();
+		}
+	}
+
+	private File file(final String fileName)
+	{
+		return new File(folder.getRoot(), fileName);
+	}
+
+	private void writeFile(final String fileName, final PluginPreset preset) throws IOException
+	{
+		Files.write(file(fileName).toPath(), storage.toJson(preset).getBytes(Charset.defaultCharset()));
+	}
+
+	private static PluginPreset preset(final long id, final String name, final String value)
+	{
+		final PluginPreset preset = new PluginPreset(name);
+		preset.setId(id);
+		final PluginSetting setting = new PluginSetting("Color", "color", value, null, CONFIG_NAME);
+		preset.getPluginConfigs().add(new PluginConfig("Agility", CONFIG_NAME, true, Collections.singletonList(setting)));
+		return preset;
+	}
+
+	private static String value(final PluginPreset preset)
+	{
+		return preset.getPluginConfigs().get(0).getSettings().get(0).getValue();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PresetJournalTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PresetJournal journal;
+
+	@Before
+	public void before()
+	{
+		journal = new PresetJournal(new Gson(), folder.getRoot());
+	}
+
+	@Test
+	public void testReadCommittedWithoutJournal() throws IOException
+	{
+		assertTrue(journal.readCommitted().isEmpty());
+	}
+
+	@Test
+	public void testReadCommittedInOrder() throws IOException
+	{
+		final PresetFileChange write = new PresetFileChange("Preset.json", "{}");
+		final PresetFileChange delete = new PresetFileChange("Old.json", null);
+		final PresetFileChange rewrite = new PresetFileChange("Preset.json", "{\"name\":\"Preset\"}");
+
+		journal.commit(Arrays.asList(write, delete));
+		journal.commit(Collections.singletonList(rewrite));
+
+		final List<PresetFileChange> changes = journal.readCommitted();
+		assertEquals(Arrays.asList(write, delete, rewrite), changes);
+		assertTrue(changes.get(1).isDelete());
+	}
+
+	@Test
+	public void testUncommittedBatchIsRolledBack() throws IOException
+	{
+		final PresetFileChange committed = new PresetFileChange("Preset.json", "{}");
+		journal.commit(Collections.singletonList(committed));
+
+		// Batch interrupted before its line ending was written
+		append("[{\"fileName\":\"Other.json\",\"json\":\"{}\"}]");
+
+		assertEquals(Collections.singletonList(committed), journal.readCommitted());
+	}
+
+	@Test
+	public void testCorruptedBatchIsSkipped() throws IOException
+	{
+		final PresetFileChange first = new PresetFileChange("First.json", "{}");
+		final PresetFileChange second = new PresetFileChange("Second.json", "{}");
+
+		journal.commit(Collections.singletonList(first));
+		append("[{\"fileName\":\n");
+		journal.commit(Collections.singletonList(second));
+
+		assertEquals(Arrays.asList(first, second), journal.readCommitted());
+	}
+
+	@Test
+	public void testClear() throws IOException
+	{
+		journal.commit(Collections.singletonList(new PresetFileChange("Preset.json", "{}")));
+		journal.clear();
+
+		assertTrue(journal.readCommitted().isEmpty());
+
+		final PresetFileChange change = new PresetFileChange("Next.json", null);
+		journal.commit(Collections.singletonList(change));
+		assertEquals(Collections.singletonList(change), journal.readCommitted());
+	}
+
+	private void append(final String data) throws IOException
+	{
+		final File file = new File(folder.getRoot(), PresetJournal.JOURNAL_FILE_NAME);
+		Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+}
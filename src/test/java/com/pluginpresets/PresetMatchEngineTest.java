@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PresetMatchEngineTest
+{
+	private static final String PLUGIN_NAME = "Agility";
+	private static final String CONFIG_NAME = "agility";
+	private static final String ENABLED_KEY = "agilityplugin";
+
+	private CustomSettingsManager customSettingsManager;
+	private TestConfigManager currentConfigManager;
+	private CurrentConfigurations currentConfigurations;
+	private PresetMatchEngine engine;
+
+	@Before
+	public void before()
+	{
+		customSettingsManager = new CustomSettingsManager();
+		currentConfigManager = new TestConfigManager(customSettingsManager);
+		currentConfigurations = new CurrentConfigurations(currentConfigManager);
+		currentConfigurations.update();
+		engine = new PresetMatchEngine(currentConfigurations, currentConfigManager, customSettingsManager);
+	}
+
+	@Test
+	public void testMismatchCount()
+	{
+		final PluginPreset matching = preset(true, "true", "red");
+		final PluginPreset differing = preset(false, "false", "blue");
+		engine.rebuild();
+
+		assertEquals(0, engine.getMismatchCount(matching));
+		assertTrue(engine.match(matching));
+		assertEquals(3, engine.getMismatchCount(differing));
+		assertFalse(engine.match(differing));
+	}
+
+	@Test
+	public void testSettingsWithoutValueOrCurrentSettingAreIgnored()
+	{
+		final PluginPreset preset = preset(null, null, "red");
+		preset.getPluginConfigs().get(0).getSettings().add(new PluginSetting("Removed", "removed", "value", null, null));
+		engine.rebuild();
+
+		assertEquals(0, engine.getMismatchCount(preset));
+	}
+
+	@Test
+	public void testConfigChanged()
+	{
+		final PluginPreset preset = preset(null, "false", "red");
+		engine.rebuild();
+		assertEquals(1, engine.getMismatchCount(preset));
+
+		change(CONFIG_NAME, "showLaps", "false");
+		assertEquals(0, engine.getMismatchCount(preset));
+
+		change(CONFIG_NAME, "lapColor", "blue");
+		assertEquals(1, engine.getMismatchCount(preset));
+
+		// Keys of other groups don't affect the preset
+		change("other", "lapColor", "red");
+		assertEquals(1, engine.getMismatchCount(preset));
+	}
+
+	@Test
+	public void testPluginTurnedOff()
+	{
+		final PluginPreset preset = preset(true, null, null);
+		engine.rebuild();
+		assertEquals(0, engine.getMismatchCount(preset));
+
+		currentConfigManager.enabled = false;
+		change("runelite", ENABLED_KEY, "false");
+		assertEquals(1, engine.getMismatchCount(preset));
+	}
+
+	@Test
+	public void testUpdateComparesOnlyChangedPresets()
+	{
+		final AtomicInteger loads = new AtomicInteger();
+		final PluginPreset stored = stored(preset(null, "false", null), loads);
+
+		final PluginPreset edited = preset(null, "true", null);
+		final List<PluginPreset> presets = new ArrayList<>(Arrays.asList(stored, edited));
+		engine.rebuild();
+		assertEquals(0, loads.get());
+		assertEquals(0, engine.getMismatchCount(edited));
+		assertEquals(1, engine.getMismatchCount(stored));
+		assertEquals(1, loads.get());
+
+		edited.getPluginConfigs().get(0).getSettings().get(0).setValue("false");
+		engine.update(presets, Collections.singletonList(edited));
+
+		assertEquals(1, engine.getMismatchCount(edited));
+		assertEquals(1, engine.getMismatchCount(stored));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testUpdateForgetsRemovedPresets()
+	{
+		final PluginPreset removed = preset(null, "false", null);
+		final PluginPreset kept = preset(null, "false", null);
+		engine.rebuild();
+
+		engine.update(Collections.singletonList(kept), Collections.emptyList());
+		change(CONFIG_NAME, "showLaps", "false");
+
+		assertEquals(0, engine.getMismatchCount(kept));
+	}
+
+	@Test
+	public void testCustomSettingChangeComparesOnlyPresetsWithTheSetting()
+	{
+		final AtomicInteger loads = new AtomicInteger();
+		final PluginPreset stored = stored(preset(null, "false", null), loads);
+
+		final PluginPreset zoom = preset(null, null, null);
+		zoom.getPluginConfigs().get(0).getSettings().add(new PluginSetting("Zoom", "zoom", "5", "camera", CONFIG_NAME));
+		final List<PluginPreset> presets = new ArrayList<>(Arrays.asList(stored, zoom));
+		currentConfigManager.customValues.put("camera.zoom", "5");
+		customSettingsManager.parseCustomSettings(presets);
+		currentConfigurations.update();
+		engine.rebuild();
+		assertEquals(1, engine.getMismatchCount(stored));
+		assertEquals(0, engine.getMismatchCount(zoom));
+		final int storedLoads = loads.get();
+
+		final PluginPreset pitch = preset(null, null, null);
+		pitch.getPluginConfigs().get(0).getSettings().add(new PluginSetting("Pitch", "pitch", "10", "camera", CONFIG_NAME));
+		presets.add(pitch);
+		currentConfigManager.customValues.put("camera.pitch", "20");
+		final List<CustomSetting> changedSettings = customSettingsManager.parseCustomSettings(presets);
+		assertEquals(1, changedSettings.size());
+		currentConfigurations.update();
+		engine.update(presets, Collections.singletonList(pitch));
+		engine.customSettingsChanged(changedSettings);
+
+		assertEquals(1, engine.getMismatchCount(pitch));
+		assertEquals(1, engine.getMismatchCount(stored));
+		assertEquals(storedLoads, loads.get());
+
+		// Presets compared before the current configurations were read again still follow changes
+		change("camera", "zoom", "6");
+		assertEquals(1, engine.getMismatchCount(zoom));
+	}
+
+	@Test
+	public void testStoredPresetIsComparedOnceItsConfigsAreRead() throws Exception
+	{
+		final List<Runnable> reads = new ArrayList<>();
+		final AtomicInteger compared = new AtomicInteger();
+		engine.setConfigReader(reads::add, compared::incrementAndGet);
+
+		final AtomicInteger loads = new AtomicInteger();
+		final PluginPreset stored = stored(preset(null, "false", null), loads);
+		engine.rebuild();
+		assertEquals(PresetMatchEngine.NOT_COMPARED, engine.getMismatchCount(stored));
+		assertEquals(PresetMatchEngine.NOT_COMPARED, engine.getMismatchCount(stored));
+		assertEquals(1, reads.size());
+		assertEquals(0, loads.get());
+
+		reads.get(0).run();
+		SwingUtilities.invokeAndWait(() ->
+		{
+		});
+
+		assertEquals(1, compared.get());
+		assertEquals(1, engine.getMismatchCount(stored));
+		assertFalse(engine.isEmpty(stored));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testReadOfChangedPresetIsIgnored() throws Exception
+	{
+		final List<Runnable> reads = new ArrayList<>();
+		final AtomicInteger compared = new AtomicInteger();
+		engine.setConfigReader(reads::add, compared::incrementAndGet);
+
+		final PluginPreset stored = stored(preset(null, "false", null), new AtomicInteger());
+		final List<PluginPreset> presets = Collections.singletonList(stored);
+		engine.rebuild();
+		assertEquals(PresetMatchEngine.NOT_COMPARED, engine.getMismatchCount(stored));
+
+		engine.update(presets, presets);
+		reads.get(0).run();
+		SwingUtilities.invokeAndWait(() ->
+		{
+		});
+
+		assertEquals(0, compared.get());
+		// Configs read for the changed preset are still held, it is compared on lookup
+		assertEquals(1, engine.getMismatchCount(stored));
+		assertEquals(1, reads.size());
+	}
+
+	private void change(final String group, final String key, final String value)
+	{
+		currentConfigurations.patch(group, key, value);
+		engine.configChanged(group, key);
+	}
+
+	/**
+	 * Makes the preset load its plugin configs like a preset created from the preset index, counting the loads.
+	 */
+	private static PluginPreset stored(final PluginPreset preset, final AtomicInteger loads)
+	{
+		final List<PluginConfig> storedConfigs = preset.getPluginConfigs();
+		preset.setPluginConfigs(null);
+		preset.setPluginConfigsLoader(() ->
+		{
+			loads.incrementAndGet();
+			return storedConfigs;
+		});
+		return preset;
+	}
+
+	private static PluginPreset preset(final Boolean enabled, final String showLaps, final String lapColor)
+	{
+		final List<PluginSetting> settings = new ArrayList<>();
+		if (showLaps != null)
+		{
+			settings.add(new PluginSetting("Show laps", "showLaps", showLaps, null, null));
+		}
+		if (lapColor != null)
+		{
+			settings.add(new PluginSetting("Lap color", "lapColor", lapColor, null, null));
+		}
+
+		final PluginPreset preset = new PluginPreset("Preset");
+		preset.getPluginConfigs().add(new PluginConfig(PLUGIN_NAME, CONFIG_NAME, enabled, settings));
+		return preset;
+	}
+
+	/**
+	 * Current configs of a single plugin with settings showLaps=true and lapColor=red, and the custom settings of presets.
+	 */
+	private static class TestConfigManager extends PluginPresetsCurrentConfigManager
+	{
+		private final CustomSettingsManager customSettingsManager;
+		private final Map<String, String> customValues = new HashMap<>();
+		private boolean enabled = true;
+
+		private TestConfigManager(final CustomSettingsManager customSettingsManager)
+		{
+			super(null, null, null, customSettingsManager);
+			this.customSettingsManager = customSettingsManager;
+		}
+
+		@Override
+		public List<PluginConfig> getCurrentConfigs()
+		{
+			final List<PluginSetting> settings = new ArrayList<>();
+			settings.add(new PluginSetting("Show laps", "showLaps", "true", null, null));
+			settings.add(new PluginSetting("Lap color", "lapColor", "red", null, null));
+			for (CustomSetting customSetting : customSettingsManager.getCustomConfigsFor(CONFIG_NAME))
+			{
+				final PluginSetting setting = customSetting.getSetting();
+				final String value = customValues.get(setting.getCustomConfigName() + "." + setting.getKey());
+				settings.add(new PluginSetting(setting.getName(), setting.getKey(), value, setting.getCustomConfigName(), setting.getConfigName()));
+			}
+			return new ArrayList<>(Collections.singletonList(new PluginConfig(PLUGIN_NAME, CONFIG_NAME, enabled, settings)));
+		}
+
+		@Override
+		public String getPluginName(final String enabledKey)
+		{
+			return ENABLED_KEY.equals(enabledKey) ? PLUGIN_NAME : null;
+		}
+
+		@Override
+		public boolean isPluginEnabled(final String enabledKey)
+		{
+			return ENABLED_KEY.equals(enabledKey) && enabled;
+		}
+	}
+}
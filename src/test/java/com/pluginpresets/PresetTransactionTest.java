@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import com.pluginpresets.PresetTransaction.ConfigWrite;
+import java.util.Collections;
+import net.runelite.client.plugins.Plugin;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PresetTransactionTest
+{
+	private final Plugin restartedPlugin = new Plugin()
+	{
+	};
+	private final Plugin enabledPlugin = new Plugin()
+	{
+	};
+
+	private PresetTransaction transaction;
+
+	@Before
+	public void before()
+	{
+		transaction = new PresetTransaction("Preset");
+		transaction.getWrites().add(new ConfigWrite("agility", "color", "red", "blue"));
+		transaction.getWrites().add(new ConfigWrite("agility", "timer", "true", null));
+		transaction.getRestartPlugins().add(restartedPlugin);
+		transaction.getEnablePlugins().put(enabledPlugin, true);
+	}
+
+	@Test
+	public void testInverseOfAppliedTransaction()
+	{
+		final PresetTransaction inverse = transaction.inverse(transaction.size());
+
+		assertEquals("Preset", inverse.getPresetName());
+		assertEquals(transaction.size(), inverse.size());
+
+		final ConfigWrite color = inverse.getWrites().get(0);
+		assertEquals("blue", color.getValue());
+		assertEquals("red", color.getPreviousValue());
+
+		// Settings that were not set before are unset
+		final ConfigWrite timer = inverse.getWrites().get(1);
+		assertNull(timer.getValue());
+		assertEquals("true", timer.getPreviousValue());
+
+		assertEquals(Collections.singleton(restartedPlugin), inverse.getRestartPlugins());
+		assertEquals(Collections.singletonMap(enabledPlugin, false), inverse.getEnablePlugins());
+	}
+
+	@Test
+	public void testInverseOfPartlyAppliedTransaction()
+	{
+		final PresetTransaction inverse = transaction.inverse(1);
+
+		assertEquals(1, inverse.size());
+		assertEquals("color", inverse.getWrites().get(0).getKey());
+		assertTrue(inverse.getRestartPlugins().isEmpty());
+		assertTrue(inverse.getEnablePlugins().isEmpty());
+	}
+
+	@Test
+	public void testInverseIncludesFailedRestart()
+	{
+		// Two writes were applied and the restart failed
+		final PresetTransaction inverse = transaction.inverse(3);
+
+		assertEquals(2, inverse.getWrites().size());
+		assertEquals(Collections.singleton(restartedPlugin), inverse.getRestartPlugins());
+		assertTrue(inverse.getEnablePlugins().isEmpty());
+	}
+
+	@Test
+	public void testInverseOfNothingApplied()
+	{
+		assertEquals(0, transaction.inverse(0).size());
+	}
+
+	@Test
+	public void testInverseBeyondSizeIsWholeTransaction()
+	{
+		assertEquals(transaction.size(), transaction.inverse(transaction.size() + 1).size());
+	}
+}
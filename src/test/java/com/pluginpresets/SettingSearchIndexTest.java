@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022, antero111 <https://github.com/antero111>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.pluginpresets;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SettingSearchIndexTest
+{
+	private SettingSearchIndex index;
+
+	@Before
+	public void before()
+	{
+		index = new SettingSearchIndex();
+		index.rebuild(Arrays.asList(
+			config("Ground Items", new PluginSetting("Highlight color", "highlightColor", "#ffffff", null, "grounditems")),
+			config("Agility", new PluginSetting("Show lap count", "showLapCount", "true", null, "agility"))));
+	}
+
+	@Test
+	public void testTokenizeCamelHumps()
+	{
+		assertEquals(Arrays.asList("draw", "distance"), SettingSearchIndex.tokenize("drawDistance"));
+		assertEquals(Arrays.asList("draw", "distance"), SettingSearchIndex.tokenize("Draw distance"));
+		assertEquals(Collections.singletonList("npc"), SettingSearchIndex.tokenize("NPC"));
+	}
+
+	@Test
+	public void testTokenizeDigits()
+	{
+		assertEquals(Arrays.asList("show", "3d", "models"), SettingSearchIndex.tokenize("Show 3D models"));
+		assertEquals(Arrays.asList("menu", "entry2"), SettingSearchIndex.tokenize("menuEntry2"));
+	}
+
+	@Test
+	public void testTokenizeEmpty()
+	{
+		assertTrue(SettingSearchIndex.tokenize("").isEmpty());
+		assertTrue(SettingSearchIndex.tokenize(" - ").isEmpty());
+		assertTrue(SettingSearchIndex.tokenize(null).isEmpty());
+	}
+
+	@Test
+	public void testWithinOneEdit()
+	{
+		assertTrue(SettingSearchIndex.isWithinOneEdit("color", "color"));
+		assertTrue(SettingSearchIndex.isWithinOneEdit("color", "colour"));
+		assertTrue(SettingSearchIndex.isWithinOneEdit("colour", "color"));
+		assertTrue(SettingSearchIndex.isWithinOneEdit("color", "cilor"));
+		assertFalse(SettingSearchIndex.isWithinOneEdit("color", "cilour"));
+		assertFalse(SettingSearchIndex.isWithinOneEdit("color", "colorful"));
+	}
+
+	@Test
+	public void testWithinOneEditAtEnd()
+	{
+		// Inserted last character
+		assertTrue(SettingSearchIndex.isWithinOneEdit("colors", "color"));
+		// Replaced last character
+		assertTrue(SettingSearchIndex.isWithinOneEdit("colors", "colorz"));
+		// Replaced and inserted characters at the end
+		assertFalse(SettingSearchIndex.isWithinOneEdit("colors", "colorzz"));
+		assertFalse(SettingSearchIndex.isWithinOneEdit("color", "cola"));
+	}
+
+	@Test
+	public void testSearchByPrefix()
+	{
+		assertEquals(Collections.singleton("Ground Items"), index.search("highl"));
+		assertEquals(Collections.singleton("Agility"), index.search("lap count"));
+		assertTrue(index.search("lap color").isEmpty());
+	}
+
+	@Test
+	public void testSearchWithTypo()
+	{
+		assertEquals(Collections.singleton("Ground Items"), index.search("hjghlight"));
+		assertEquals(Collections.singleton("Ground Items"), index.search("higlight"));
+	}
+
+	@Test
+	public void testSearchEmptyQuery()
+	{
+		assertTrue(index.search("").isEmpty());
+		assertTrue(index.search("  ").isEmpty());
+	}
+
+	private static PluginConfig config(String name, PluginSetting setting)
+	{
+		return new PluginConfig(name, setting.getConfigName(), true, Collections.singletonList(setting));
+	}
+}